@@ -40,6 +40,13 @@ package me.jaimegarza.syntax.algorithm;
  *   sets in a specific point of the rules where they appear.  Follow sets in
  *   SLR are computed for a non-terminal based on ALL the rules where they
  *   appear.</li>
+ *   
+ *   <li>LR stands for a minimal canonical LR(1) parser.  It computes the
+ *   lookaheads as LALR does, but splits the states whose merging would
+ *   produce reduce/reduce conflicts that LR(1) does not have, by means of
+ *   Pager's weak compatibility.  Grammars that are LR(1) but not LALR(1) do
+ *   not need to be rewritten, and the number of states stays close to LALR.
+ *   </li>
  * </ul>
  * 
  * It is worth noting that SLR requires more reduce actions to produce an
@@ -61,7 +68,6 @@ package me.jaimegarza.syntax.algorithm;
  * impractically too large.
  * <p>
  * 
- * TODO: P4-Add LR mode
  * TODO: P5-Add Honalee algorithm
  * 
  * @see {@link me.jaimegarza.syntax.generator.StructuralAnalyzer} for the creation
@@ -71,5 +77,5 @@ package me.jaimegarza.syntax.algorithm;
  *
  */
 public enum Algorithm {
-  LALR, SLR
+  LALR, SLR, LR
 }
@@ -35,6 +35,7 @@ import me.jaimegarza.syntax.definition.LookAhead;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.RuleItem;
 import me.jaimegarza.syntax.definition.State;
+import me.jaimegarza.syntax.util.FormattingPrintStream;
 
 public interface AlgorithmicSupport {
   /**
@@ -74,9 +75,10 @@ public interface AlgorithmicSupport {
   
   /**
    * Print the lookaheads in a dot
+   * @param report is the stream where the lookaheads are printed
    * @param dot is the dot to print
    */
-  void printLookahead(Dot dot);
+  void printLookahead(FormattingPrintStream report, Dot dot);
   
   /**
    * Checks a dot to see if it contains the symbol
@@ -104,5 +106,22 @@ public interface AlgorithmicSupport {
    */
   boolean hasFollows();
 
+  /**
+   * Once the closure of a state is known, or its kernel lookaheads change,
+   * carry the lookaheads over to its closure dots.
+   * @param state is the state to complete
+   */
+  void completeLookaheads(State state);
+
+  /**
+   * Algorithms that split states may have more than one state with the
+   * same kernel.  Check if the dots moved into a state with the same kernel
+   * can be merged into it.
+   * @param state is the candidate state
+   * @param dots are the dots moved into the state
+   * @return true if the dots can be merged into the state
+   */
+  boolean isCompatible(State state, List<Dot> dots);
+
 
 }
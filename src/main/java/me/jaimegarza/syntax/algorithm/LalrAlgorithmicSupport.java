@@ -29,7 +29,6 @@
 package me.jaimegarza.syntax.algorithm;
 
 import java.util.List;
-import java.util.Set;
 
 import me.jaimegarza.syntax.definition.Dot;
 import me.jaimegarza.syntax.definition.LookAhead;
@@ -40,6 +39,8 @@ import me.jaimegarza.syntax.definition.State;
 import me.jaimegarza.syntax.definition.Symbol;
 import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.env.Environment;
+import me.jaimegarza.syntax.util.FormattingPrintStream;
+import me.jaimegarza.syntax.util.SymbolSet;
 
 public class LalrAlgorithmicSupport extends BaseAlgorithmicSupport {
 
@@ -120,19 +121,19 @@ public class LalrAlgorithmicSupport extends BaseAlgorithmicSupport {
   }
 
   @Override
-  public void printLookahead(Dot dot) {
-    Set<Integer> lookAhead = dot.getLookahead();
+  public void printLookahead(FormattingPrintStream report, Dot dot) {
+    SymbolSet lookAhead = dot.getLookahead();
     if (lookAhead == null) {
       return;
     }
 
-    environment.report.print("     { ");
+    report.print("     { ");
     for (Symbol tkn : runtimeData.getTerminals()) {
       if (lookAhead.contains(tkn.getId())) {
-        environment.report.print(tkn.getName() + " ");
+        report.print(tkn.getName() + " ");
       }
     }
-    environment.report.print("}");
+    report.print("}");
   }
 
   @Override
@@ -150,6 +151,15 @@ public class LalrAlgorithmicSupport extends BaseAlgorithmicSupport {
     dot.addLookahead(0); // empty set
   }
 
+  @Override
+  public void completeLookaheads(State state) {
+  }
+
+  @Override
+  public boolean isCompatible(State state, List<Dot> dots) {
+    return true;
+  }
+
   @Override
   public boolean hasFollows() {
     return false;
@@ -0,0 +1,134 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.algorithm;
+
+import java.util.List;
+
+import me.jaimegarza.syntax.definition.Dot;
+import me.jaimegarza.syntax.definition.LookAhead;
+import me.jaimegarza.syntax.definition.NonTerminal;
+import me.jaimegarza.syntax.definition.Rule;
+import me.jaimegarza.syntax.definition.State;
+import me.jaimegarza.syntax.env.Environment;
+import me.jaimegarza.syntax.util.SymbolSet;
+
+/**
+ * Minimal LR(1) support, by means of Pager's weak compatibility.<p>
+ * 
+ * Lookaheads are computed as in LALR, but a state is not merged with the
+ * dots moved into it when merging could cause a reduce/reduce conflict that
+ * canonical LR(1) would not have.  A new state with the same kernel is created
+ * instead.  Pager's condition over the kernel dots <i>i</i> and <i>j</i>,
+ * where L are the lookaheads of the state and L' the lookaheads of the
+ * moved dots, is that either<pre>
+ *   (L<sub>i</sub> &cup; L'<sub>i</sub>) &cap; (L<sub>j</sub> &cup; L'<sub>j</sub>) = &empty;, or
+ *   L<sub>i</sub> &cap; L<sub>j</sub> &ne; &empty;, or
+ *   L'<sub>i</sub> &cap; L'<sub>j</sub> &ne; &empty;
+ * </pre>
+ * That is, the merge does not bring together lookaheads of two dots that were
+ * not already together in one of the states.  States are thus only split
+ * where LALR merging produces conflicts, and the tables stay close in size to
+ * the LALR tables.
+ * 
+ * @author jaimegarza@gmail.com
+ *
+ */
+public class LrAlgorithmicSupport extends LalrAlgorithmicSupport {
+
+  /**
+   * Construct the supporting utility algorithm class for minimal LR(1)
+   * 
+   * @param environment is the calling environment
+   */
+  public LrAlgorithmicSupport(Environment environment) {
+    super(environment);
+  }
+
+  @Override
+  public boolean addLookaheadsToState(State I[], int state, List<Dot> dots) {
+    boolean changed = false;
+    for (Dot dot : dots) {
+      Dot kernelDot = I[state].findDot(dot.getRule(), dot.getItem());
+      if (kernelDot.getLookahead().addAll(dot.getLookahead())) {
+        changed = true;
+      }
+    }
+    if (changed) {
+      completeLookaheads(I[state]);
+    }
+    return changed;
+  }
+
+  @Override
+  public void completeLookaheads(State state) {
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Dot dot : state.getAllDots()) {
+        if (dot.getItem() == null || !(dot.getItem().getSymbol() instanceof NonTerminal)) {
+          continue;
+        }
+        LookAhead l = computeLookAhead(dot.getRule(), dot.getItem());
+        for (Rule rule : runtimeData.getRulesWithLeftHand(dot.getItem().getSymbolId())) {
+          Dot closureDot = state.findDot(rule, rule.getItem(0));
+          if (closureDot.getLookahead().addAll(l.getSymbolIds())) {
+            changed = true;
+          }
+          if (l.isCarry() && closureDot.getLookahead().addAll(dot.getLookahead())) {
+            changed = true;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isCompatible(State state, List<Dot> dots) {
+    SymbolSet current[] = new SymbolSet[dots.size()];
+    SymbolSet moved[] = new SymbolSet[dots.size()];
+    int i = 0;
+    for (Dot dot : dots) {
+      current[i] = state.findDot(dot.getRule(), dot.getItem()).getLookahead();
+      moved[i] = dot.getLookahead();
+      i++;
+    }
+
+    for (i = 0; i < dots.size(); i++) {
+      for (int j = i + 1; j < dots.size(); j++) {
+        boolean mergedIntersect = current[i].intersects(current[j]) || current[i].intersects(moved[j]) ||
+            moved[i].intersects(current[j]) || moved[i].intersects(moved[j]);
+        if (mergedIntersect && !current[i].intersects(current[j]) && !moved[i].intersects(moved[j])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+}
@@ -36,6 +36,7 @@ import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.RuleItem;
 import me.jaimegarza.syntax.definition.State;
 import me.jaimegarza.syntax.env.Environment;
+import me.jaimegarza.syntax.util.FormattingPrintStream;
 
 public class SlrAlgorithmicSupport extends BaseAlgorithmicSupport{
 
@@ -64,7 +65,7 @@ public class SlrAlgorithmicSupport extends BaseAlgorithmicSupport{
   }
 
   @Override
-  public void printLookahead(Dot dot) {
+  public void printLookahead(FormattingPrintStream report, Dot dot) {
   }
 
   @Override
@@ -86,6 +87,15 @@ public class SlrAlgorithmicSupport extends BaseAlgorithmicSupport{
     
   }
 
+  @Override
+  public void completeLookaheads(State state) {
+  }
+
+  @Override
+  public boolean isCompatible(State state, List<Dot> dots) {
+    return true;
+  }
+
   @Override
   public boolean hasFollows() {
     return true;
@@ -59,6 +59,7 @@ public class Fragments_c extends ListResourceBundle {
       {Fragments.GETC, "StxChar = StxNextChar()"},
       {Fragments.RETURN_VALUE, "return {0}"},
       {Fragments.LEXER_MODE, "StxLexerMode"},
+      {Fragments.CHARACTER_CLASS, "((StxCharClassMasks[(unsigned char) StxChar] & {0}) != 0)"},
   };
 
 }
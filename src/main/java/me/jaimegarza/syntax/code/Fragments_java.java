@@ -59,6 +59,7 @@ public class Fragments_java extends ListResourceBundle {
       {Fragments.GETC, "currentChar = getNextChar(false)"},
       {Fragments.RETURN_VALUE, "return {0}"},
       {Fragments.LEXER_MODE, "parserElementMode"},
+      {Fragments.CHARACTER_CLASS, "((charClassMasks[charClassBlocks[currentChar >> 8] | (currentChar & 0xff)] & {0}) != 0)"},
   };
 
 }
@@ -59,6 +59,7 @@ public class Fragments_pascal extends ListResourceBundle {
       {Fragments.GETC, "StxChar := StxNextChar"},
       {Fragments.RETURN_VALUE, "StxLexer := {0}; exit"},
       {Fragments.LEXER_MODE, "StxLexerMode"},
+      {Fragments.CHARACTER_CLASS, "((StxCharClassMasks[ord(StxChar)] and {0}) <> 0)"},
   };
 
 }
@@ -108,6 +108,15 @@ public class Action {
     }
   }
 
+  /**
+   * Consistent with {@link #equals(Object)}, equal symbols have the same id
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return 31 * (symbol == null ? 0 : symbol.getId()) + stateNumber;
+  }
+
   /**
    * Returns a phrase with the symbol and its destination
    * @see java.lang.Object#toString()
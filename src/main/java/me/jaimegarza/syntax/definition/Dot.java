@@ -28,8 +28,7 @@
 */
 package me.jaimegarza.syntax.definition;
 
-import java.util.HashSet;
-import java.util.Set;
+import me.jaimegarza.syntax.util.SymbolSet;
 
 /**
  * <i>~pojo class</i><br><br>
@@ -125,7 +124,7 @@ public class Dot {
    * <pre>  F -> .number
    * the lookaheads for the dot are {number} 
    */
-  private Set<Integer> lookahead = new HashSet<Integer>();
+  private SymbolSet lookahead = new SymbolSet();
 
   /**
    * Construct a dot
@@ -159,6 +158,19 @@ public class Dot {
     return null;
   }
 
+  /**
+   * The position of the dot in its rule, counting the rule items to
+   * its left.  A dot at the end of the rule is at position rule size.
+   *
+   * @return the zero based position of the dot
+   */
+  public int getPosition() {
+    if (item == null) {
+      return rule.getItems().size();
+    }
+    return rule.exactIndexOf(item);
+  }
+
   /**
    * State dots are linked.  Get the next dot in the state.
    * @return the next dot, or null.
@@ -188,7 +200,7 @@ public class Dot {
    * merge lookaheads into this dot
    * @param symbolIds
    */
-  public void addAllLookaheads(Set<Integer> symbolIds) {
+  public void addAllLookaheads(SymbolSet symbolIds) {
     lookahead.addAll(symbolIds);
   }
 
@@ -197,7 +209,7 @@ public class Dot {
   /**
    * @return the lookahead
    */
-  public Set<Integer> getLookahead() {
+  public SymbolSet getLookahead() {
     return lookahead;
   }
 
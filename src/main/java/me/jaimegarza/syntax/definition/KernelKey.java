@@ -0,0 +1,107 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.definition;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <i>~pojo class</i><br><br>
+ *
+ * The kernel key is the canonical form of the kernel {@link Dot}s of a
+ * {@link State}.  Kernel dots fully identify a state, and as such two
+ * states with the same set of kernel dots are the same state.<p>
+ * 
+ * Each dot is represented by the pair (rule number, dot position), and the
+ * pairs are kept sorted and without repetition, so that the order in which
+ * the dots were produced does not matter.  This allows states to be located
+ * with a hash lookup instead of comparing the dots of every state.
+ * 
+ * @author jaimegarza@gmail.com
+ *
+ */
+public class KernelKey {
+  /**
+   * The sorted (rule number, position) pairs, one long per dot
+   */
+  private long elements[];
+  /**
+   * Keys are immutable, so the hash is computed only once
+   */
+  private int hash;
+
+  /**
+   * Construct the key for a set of kernel dots
+   * @param dots is the list of kernel dots
+   */
+  public KernelKey(List<Dot> dots) {
+    long keys[] = new long[dots.size()];
+    int i = 0;
+    for (Dot dot : dots) {
+      keys[i++] = ((long) dot.getRule().getRulenum() << 32) | dot.getPosition();
+    }
+    Arrays.sort(keys);
+    int size = 0;
+    for (i = 0; i < keys.length; i++) {
+      if (size == 0 || keys[size - 1] != keys[i]) {
+        keys[size++] = keys[i];
+      }
+    }
+    this.elements = size == keys.length ? keys : Arrays.copyOf(keys, size);
+    this.hash = Arrays.hashCode(elements);
+  }
+
+  /**
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    try {
+      KernelKey k = (KernelKey) obj;
+      return hash == k.hash && Arrays.equals(elements, k.elements);
+    } catch (NullPointerException unused) {
+      return false;
+    } catch (ClassCastException unused) {
+      return false;
+    }
+  }
+
+}
@@ -28,8 +28,7 @@
 */
 package me.jaimegarza.syntax.definition;
 
-import java.util.HashSet;
-import java.util.Set;
+import me.jaimegarza.syntax.util.SymbolSet;
 
 /**
  * <i>~pojo class</i><br><br>
@@ -51,7 +50,7 @@ public class LookAhead {
   /**
    * The set of symbol ids that make a lookahead
    */
-  Set<Integer> symbolIds = new HashSet<Integer>();
+  SymbolSet symbolIds = new SymbolSet();
   /**
    * A carry is obtained when a rule is at the end, and the follow
    * may require additional computations.
@@ -61,14 +60,14 @@ public class LookAhead {
   /**
    * @return the symbolIds
    */
-  public Set<Integer> getSymbolIds() {
+  public SymbolSet getSymbolIds() {
     return symbolIds;
   }
 
   /**
    * @param symbolIds the symbolIds to set
    */
-  public void setSymbolIds(Set<Integer> symbolIds) {
+  public void setSymbolIds(SymbolSet symbolIds) {
     this.symbolIds = symbolIds;
   }
 
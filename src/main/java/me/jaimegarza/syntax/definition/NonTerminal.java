@@ -30,7 +30,8 @@ package me.jaimegarza.syntax.definition;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+
+import me.jaimegarza.syntax.util.SymbolSet;
 
 /**
  * <i>~pojo class</i><br><br>
@@ -77,7 +78,7 @@ public class NonTerminal extends Symbol {
     * 
     * null means that the first has not been computed.
     */
-  Set<Integer> first = null;
+  SymbolSet first = null;
   /**
    * The <i>follow</i> set for the non terminal, only computed for SLR.<p> 
    * The follow set is the set of terminal symbols that can appear after the non terminal.
@@ -92,7 +93,7 @@ public class NonTerminal extends Symbol {
    * 
    * null means that the first has not been computed.
    */
-  Set<Integer> follow = null;
+  SymbolSet follow = null;
   /**
    * The goto set is a list of {@link Goto} objects that this object can reach.
    * 
@@ -125,6 +126,16 @@ public class NonTerminal extends Symbol {
     GoTo goTo = new GoTo(origin, destination);
     addGoTo(goTo);
   }
+
+  /**
+   * Create a goto, and then insert it at the start of the goto list
+   * @param origin the origin state
+   * @param destination the destination state.
+   */
+  public void prependGoto(int origin, int destination) {
+    GoTo goTo = new GoTo(origin, destination);
+    gotos.add(0, goTo);
+  }
   
   /**
    * compute the default goto for a non-terminal.  The default goto
@@ -191,28 +202,28 @@ public class NonTerminal extends Symbol {
   /**
    * @return the first
    */
-  public Set<Integer> getFirst() {
+  public SymbolSet getFirst() {
     return first;
   }
 
   /**
    * @param first the first to set
    */
-  public void setFirst(Set<Integer> first) {
+  public void setFirst(SymbolSet first) {
     this.first = first;
   }
 
   /**
    * @return the follow
    */
-  public Set<Integer> getFollow() {
+  public SymbolSet getFollow() {
     return follow;
   }
 
   /**
    * @param follow the follow to set
    */
-  public void setFollow(Set<Integer> follow) {
+  public void setFollow(SymbolSet follow) {
     this.follow = follow;
   }
 
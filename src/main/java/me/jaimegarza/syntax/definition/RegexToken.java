@@ -0,0 +1,113 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.definition;
+
+import me.jaimegarza.syntax.regex.node.RegexNode;
+
+/**
+ * <i>~pojo class</i><br><br>
+ * 
+ * A terminal recognized by a regular expression, as in
+ * <pre>
+ * %token TOK_NUMBER : "number" /[0-9]+/ = $v.number = ...;
+ * </pre>
+ * The expressions of a lexer mode are compiled together into one
+ * automaton, and the action runs after the longest match.
+ * 
+ * @author jaimegarza@gmail.com
+ *
+ */
+public class RegexToken {
+  /**
+   * The token being recognized
+   */
+  Terminal terminal;
+  /**
+   * The lexer mode where the expression applies
+   */
+  String lexerMode;
+  /**
+   * The tree of the regular expression
+   */
+  RegexNode regex;
+  /**
+   * The code to execute once the expression is matched, or null
+   */
+  String action;
+
+  /**
+   * Construct a fully defined regular expression token
+   * @param terminal is the token to return on a match
+   * @param lexerMode is the lexer mode of the expression
+   * @param regex is the tree of the expression
+   * @param action is the code for a match, or null
+   */
+  public RegexToken(Terminal terminal, String lexerMode, RegexNode regex, String action) {
+    this.terminal = terminal;
+    this.lexerMode = lexerMode;
+    this.regex = regex;
+    this.action = action;
+  }
+
+  /**
+   * @return the terminal
+   */
+  public Terminal getTerminal() {
+    return terminal;
+  }
+
+  /**
+   * @return the lexerMode
+   */
+  public String getLexerMode() {
+    return lexerMode;
+  }
+
+  /**
+   * @return the regex
+   */
+  public RegexNode getRegex() {
+    return regex;
+  }
+
+  /**
+   * @return the action
+   */
+  public String getAction() {
+    return action;
+  }
+
+  /**
+   * Returns the token and its expression
+   */
+  @Override
+  public String toString() {
+    return terminal.getName() + " /" + regex + "/";
+  }
+}
@@ -28,9 +28,11 @@
 */
 package me.jaimegarza.syntax.definition;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <i>~pojo class</i><br><br>
@@ -85,7 +87,6 @@ import java.util.List;
  * <b>from</b> &isin; <b>I</b><br>
  * <b>symbol</b> &isin; <b>N</b> &cup; <b>T</b><br>
  * <b>default</b> &isin; <b>A</b><br>
- * <b>review</b> &isin; {<i>true</i>, <i>false</i>}<br>
  * <b>dot</b>&#7522; is a pair (<b>r</b>&#7522; &isin; <b>R</b>, <b>pos</b> &isin; 
  * <b>Int</b> &le; |<b>r</b>&#7522;|), where |<b>r</b>&#7522;| is the number of items in a rule <b>r</b>&#7522;
  * <p>
@@ -116,12 +117,17 @@ public class State {
    * A state does not itself contain a list of rules. It has a list
    * of {@link Dot}s, which themselves identify the rules uniquely. 
    */
-  List<Dot> kernelDots = new LinkedList<Dot>();
+  List<Dot> kernelDots = new ArrayList<Dot>();
   /**
    * I keep the closure separate, so that the equals method is done only on the
    * kernel dots.
    */
-  List<Dot> closureDots = new LinkedList<Dot>();
+  List<Dot> closureDots = new ArrayList<Dot>();
+  /**
+   * All the dots of the state, kernel and closure, keyed by rule number and
+   * dot position, so that a dot can be located without scanning the lists.
+   */
+  Map<Long, Dot> dotIndex = new HashMap<Long, Dot>();
   /**
    * 
    */
@@ -170,13 +176,6 @@ public class State {
    * The row is the unpacked parsing table's row that identifies the state
    */
   private int row[];
-  /**
-   * The review flag is used as a volatile value during state generation to
-   * aid in the process of processing further states.  When this flag is on
-   * the state is reviewed in the loop for further states. When all states have
-   * been reviewed, the process is complete.
-   */
-  boolean review;
 
   /**
    * Construct a state
@@ -187,7 +186,6 @@ public class State {
   public State(int id, int from, Symbol symbol) {
     //this();
     this.id = id;
-    this.review = true;
     this.from = from;
     this.symbol = symbol;
     this.message = -1;
@@ -206,7 +204,7 @@ public class State {
    */
   private void computeEffectiveDots() {
     if (effectiveDots == null) {
-      effectiveDots = new LinkedList<Dot>();
+      effectiveDots = new ArrayList<Dot>();
     }
     if (dirtyList) {
       effectiveDots.clear();
@@ -258,6 +256,7 @@ public class State {
   public void addKernelDot(Dot dot) {
     if (!kernelDots.contains(dot)) {
       kernelDots.add(dot);
+      dotIndex.put(dotKey(dot.getRule(), dot.getPosition()), dot);
       dirtyList = true;
     }
   }
@@ -267,12 +266,36 @@ public class State {
    * @param dot the dot to be added
    */
   public void addClosureDot(Dot dot) {
-    if (!closureDots.contains(dot)) {
+    Long key = dotKey(dot.getRule(), dot.getPosition());
+    if (!dotIndex.containsKey(key)) {
       closureDots.add(dot);
+      dotIndex.put(key, dot);
       dirtyList = true;
     }
   }
 
+  /**
+   * Locate a dot of this state, by rule and rule item.
+   * 
+   * @param rule the rule of the dot
+   * @param item the rule item of the dot.  Null for the end of the rule.
+   * @return the dot, or null if the state does not have it
+   */
+  public Dot findDot(Rule rule, RuleItem item) {
+    int position = item == null ? rule.getItems().size() : rule.exactIndexOf(item);
+    return dotIndex.get(dotKey(rule, position));
+  }
+
+  /**
+   * Compute the key of a dot in the dot index
+   * @param rule the rule of the dot
+   * @param position the position of the dot in the rule
+   * @return the (rule number, position) pair as a long
+   */
+  private static Long dotKey(Rule rule, int position) {
+    return ((long) rule.getRulenum() << 32) | position;
+  }
+
   /**
    * Merge all dots into this objects kernel dots.
    * @param dots is the list of dots to merge from
@@ -309,20 +332,6 @@ public class State {
     this.id = id;
   }
 
-  /**
-   * @return the review
-   */
-  public boolean isReview() {
-    return review;
-  }
-
-  /**
-   * @param review the review to set
-   */
-  public void setReview(boolean review) {
-    this.review = review;
-  }
-
   /**
    * @return the from
    */
@@ -441,7 +450,6 @@ public class State {
 
     try {
       State s = (State) obj;
-      // skipping review on purpose, since review is really volatile
       // skipping defaultValue, actions since they may be transitional (i.e.
       // about to be calculated and this is why I am comparing in the first
       // place)
@@ -28,22 +28,22 @@
 */
 package me.jaimegarza.syntax.env;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.Reader;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.util.HashMap;
 import java.util.List;
@@ -54,6 +54,7 @@ import java.util.ResourceBundle;
 import me.jaimegarza.syntax.algorithm.Algorithm;
 import me.jaimegarza.syntax.algorithm.AlgorithmicSupport;
 import me.jaimegarza.syntax.algorithm.LalrAlgorithmicSupport;
+import me.jaimegarza.syntax.algorithm.LrAlgorithmicSupport;
 import me.jaimegarza.syntax.algorithm.SlrAlgorithmicSupport;
 import me.jaimegarza.syntax.code.Fragments;
 import me.jaimegarza.syntax.definition.Driver;
@@ -62,13 +63,14 @@ import me.jaimegarza.syntax.language.Language;
 import me.jaimegarza.syntax.language.LanguageSupport;
 import me.jaimegarza.syntax.util.FormattingPrintStream;
 import me.jaimegarza.syntax.util.PathUtils;
+import me.jaimegarza.syntax.util.SourceBuffer;
 
 /**
  * Examines the command line resources and encapsulates the resulting
  * options in getter methods.
  * <p>
  * In addition to that it offers the private output, report and source
- * fields to use as PrintWriters and BufferedReaders.
+ * fields to use as PrintWriters and a SourceBuffer.
  * 
  */
 @SuppressWarnings("unused")
@@ -94,7 +96,15 @@ public class Environment {
   private boolean emitLine;
   private int margin;
   private int indent;
+  private int threads;
   private boolean packed;
+  private boolean comb;
+  private boolean staticTables;
+  private boolean compact;
+  private boolean growable;
+  private boolean recycleValues;
+  private boolean bufferedInput;
+  private Charset encoding;
   private boolean externalInclude;
   private List<String> fileNames;
   private File sourceFile;
@@ -103,7 +113,7 @@ public class Environment {
   private File reportFile;
   private RuntimeData runtimeData = new RuntimeData();
 
-  public BufferedReader source = null;
+  public SourceBuffer source = null;
   public FormattingPrintStream output = null;
   public FormattingPrintStream include = null;
   public FormattingPrintStream report = null;
@@ -190,6 +200,13 @@ public class Environment {
       setPacking();
       setExternalInclude();
       setDriver();
+      setThreads();
+      setCompact();
+      setStaticTables();
+      setGrowable();
+      setRecycleValues();
+      setBufferedInput();
+      setEncoding();
       this.fileNames = cmd.getParameters();
       setSourceFile();
       setOutputFile();
@@ -229,14 +246,16 @@ public class Environment {
         "Setup the syntax and output to be either java|c|pascal, default c", "language");
     add("v", "verbose", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED, "Verbose output, default no", "");
     add("a", "algorithm", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
-        "Algorithm, either s|l (For SLR and LALR, default LALR)", "algorithm");
+        "Algorithm, either s|l|r (For SLR, LALR and minimal LR(1), default LALR)", "algorithm");
     add("g", "debug", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED, "Prints debug information", "");
     add("n", "noline", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED, "Disable #line directives in C, default enabled", "");
     add("m", "margin", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED, "Right margin on generated source, default 8000",
         "margin");
     add("i", "indent", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED, "Indent by n spaces, default 2", "spaces");
     add("p", "packing", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
-        "Packing format of parser (packed|tabular, default packed)\n" +
+        "Packing format of parser (packed|comb|tabular, default packed)\n" +
+        "* comb tables are packed tables whose \n" +
+        "* actions are found by row displacement.\n" +
         "* please note that unpacked tables are \n" +
         "* mostly for didactical purposes as they \n" +
         "* may lend a big number of states in a \n" +
@@ -245,6 +264,32 @@ public class Environment {
         "Generate include file (true,on,yes,1|false,off,no,0, default is language dependent)", "external");
     add("d", "driver", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
         "What parser driver is to be used (parser|scanner, default is parser)", "parser");
+    add("t", "threads", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Number of threads used to complete the parsing table, default 1", "threads");
+    add("s", "static", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Emit java tables as static final arrays shared by all parsers.\n" +
+        "* For concurrent parsing use -s -w and keep one parser\n" +
+        "* instance per thread, reused through reset(), default no", "");
+    add("c", "compact", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Emit java tables as compact strings decoded once per class.\n" +
+        "* Keeps large grammars under the method size \n" +
+        "* limit.  Implies --static, default no", "");
+    add("w", "growable", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Start the parser stacks small and grow them as needed, default fixed", "");
+    add("r", "recycle", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Recycle java token values popped by reductions instead\n" +
+        "* of allocating one per token.  Rule actions must copy\n" +
+        "* values out of the stack elements.  A recycled value\n" +
+        "* keeps the fields of the token it last held, %class\n" +
+        "* initializers included, so lexer actions must assign\n" +
+        "* every field that the rules read, default no", "");
+    add("b", "buffered", NO_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Read the input of java lexers through a generated buffered\n" +
+        "* layer, fed with setInput(String|char[]|Reader|ByteBuffer),\n" +
+        "* instead of a user written getNextChar, default no", "");
+    add("f", "encoding", HAS_ARG, NO_OPTIONAL_VALUE, NOT_REQUIRED,
+        "Character encoding of the grammar and of the generated\n" +
+        "* files, default is the platform encoding", "encoding");
   }
 
   /**
@@ -320,6 +365,9 @@ public class Environment {
     } else if (value.equalsIgnoreCase("l") || value.equalsIgnoreCase("lalr")) {
       this.algorithmEnum = Algorithm.LALR;
       this.algorithm = new LalrAlgorithmicSupport(this);
+    } else if (value.equalsIgnoreCase("r") || value.equalsIgnoreCase("lr")) {
+      this.algorithmEnum = Algorithm.LR;
+      this.algorithm = new LrAlgorithmicSupport(this);
     } else {
       throw new CommandLineParseException("Option -a|--algorithm is not valid :" + value);
     }
@@ -334,6 +382,9 @@ public class Environment {
     String value = get("p", "p");
     if (value.equalsIgnoreCase("p") || value.equalsIgnoreCase("packed")) {
       this.packed = true;
+    } else if (value.equalsIgnoreCase("c") || value.equalsIgnoreCase("comb")) {
+      this.packed = true;
+      this.comb = true;
     } else if (value.equalsIgnoreCase("t") || value.equalsIgnoreCase("tabular")) {
       this.packed = false;
     } else {
@@ -377,6 +428,64 @@ public class Environment {
     }
   }
 
+  /**
+   * compute the number of threads from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setThreads() throws CommandLineParseException {
+    String value = get("t", "1");
+    int number;
+    try {
+      number = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new CommandLineParseException("Option -t|--threads is not valid :" + value);
+    }
+    if (number < 1) {
+      throw new CommandLineParseException("Option -t|--threads should be at least 1 :" + value);
+    }
+    this.threads = number;
+  }
+
+  /**
+   * compute the sharing of the generated tables from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setStaticTables() throws CommandLineParseException {
+    this.staticTables = has("s") || compact;
+  }
+
+  /**
+   * compute the compact encoding of the generated tables from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setCompact() throws CommandLineParseException {
+    this.compact = has("c");
+  }
+
+  /**
+   * compute the growth of the parser stacks from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setGrowable() throws CommandLineParseException {
+    this.growable = has("w");
+  }
+
+  /**
+   * compute the recycling of the token values from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setRecycleValues() throws CommandLineParseException {
+    this.recycleValues = has("r");
+  }
+
+  /**
+   * compute the buffered input of the generated lexers from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setBufferedInput() throws CommandLineParseException {
+    this.bufferedInput = has("b");
+  }
+
   /**
    * compute the verbosity from options
    * @throws CommandLineParseException if the option cannot be computed
@@ -401,6 +510,23 @@ public class Environment {
     this.emitLine = !has("n");
   }
 
+  /**
+   * compute the character encoding of the files from options
+   * @throws CommandLineParseException if the option cannot be computed
+   */
+  private void setEncoding() throws CommandLineParseException {
+    String value = get("f", null);
+    if (value == null) {
+      this.encoding = Charset.defaultCharset();
+      return;
+    }
+    try {
+      this.encoding = Charset.forName(value);
+    } catch (IllegalArgumentException e) {
+      throw new CommandLineParseException("Option -f|--encoding is not valid :" + value);
+    }
+  }
+
   /**
    * compute the margin from options
    * @throws CommandLineParseException if the option cannot be computed
@@ -513,7 +639,7 @@ public class Environment {
       this.reportFile = new File(replaceExtension(sourceFile.getPath(), ".txt"));
     }
     try {
-      source = new BufferedReader(openFileForRead(sourceFile));
+      source = new SourceBuffer(openFileForRead(sourceFile), encoding);
     } catch (IOException e) {
       throw new CommandLineParseException("Cannot open file " + sourceFile);
     }
@@ -585,7 +711,7 @@ public class Environment {
    * @param args are the additional entries in the message
    */
   public void error(int line, String msg, Object... args) {
-    System.err.printf("%s(%d) : ", sourceFile, line == -1 ? runtimeData.lineNumber : line);
+    System.err.printf("%s(%d) : ", sourceFile, line == -1 ? source.getLineNumber() : line);
     System.err.printf(msg + "\n", args);
 
   }
@@ -593,10 +719,10 @@ public class Environment {
   /**
    * Open a file for reading, if possible
    * @param file is the file descriptor to be opened
-   * @return the input stream
+   * @return the channel of the file
    * @throws IOException on error
    */
-  private Reader openFileForRead(File file) throws IOException {
+  private FileChannel openFileForRead(File file) throws IOException {
     if (file.exists()) {
         if (file.isDirectory()) {
             throw new IOException("File " + file + " is a directory.  Exiting.");
@@ -607,7 +733,7 @@ public class Environment {
     } else {
         throw new FileNotFoundException("File " + file + " does not exist. Exiting.");
     }
-    return new FileReader(file);
+    return new FileInputStream(file).getChannel();
   }
   /**
    * Open a file for writing, destroying the contents, if possible
@@ -631,7 +757,7 @@ public class Environment {
           }
       }
     }
-    return new FileWriter(file, false);
+    return new OutputStreamWriter(new FileOutputStream(file, false), encoding);
   }
 
   /**
@@ -711,6 +837,13 @@ public class Environment {
     return indent;
   }
 
+  /**
+   * @return the number of threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
   /**
    * @return the packed
    */
@@ -718,6 +851,67 @@ public class Environment {
     return packed;
   }
 
+  /**
+   * Comb tables are packed tables whose actions are laid out
+   * in comb vectors, found by row displacement.
+   * @return the comb
+   */
+  public boolean isComb() {
+    return comb;
+  }
+
+  /**
+   * Static tables are emitted once per generated class, and are
+   * shared by all of its instances and threads.
+   * @return the staticTables
+   */
+  public boolean isStaticTables() {
+    return staticTables;
+  }
+
+  /**
+   * Compact tables are emitted as encoded strings, decoded into arrays
+   * when the generated class is loaded.
+   * @return the compact
+   */
+  public boolean isCompact() {
+    return compact;
+  }
+
+  /**
+   * Growable stacks start small and are doubled by the generated
+   * parser whenever they fill up.
+   * @return the growable
+   */
+  public boolean isGrowable() {
+    return growable;
+  }
+
+  /**
+   * Recycled values are stack elements popped by a reduction and kept
+   * by the generated parser to hold the values of the next tokens.
+   * @return the recycleValues
+   */
+  public boolean isRecycleValues() {
+    return recycleValues;
+  }
+
+  /**
+   * Buffered input gives the generated lexers their getNextChar, reading
+   * from a sequence of characters, a reader or a buffer of bytes.
+   * @return the bufferedInput
+   */
+  public boolean isBufferedInput() {
+    return bufferedInput;
+  }
+
+  /**
+   * @return the character encoding of the grammar and the generated files
+   */
+  public Charset getEncoding() {
+    return encoding;
+  }
+
   /**
    * @return the externalInclude
    */
@@ -819,9 +1013,15 @@ public class Environment {
              "  packed: " +
              packed +
              "\n" +
+             "  comb: " +
+             comb +
+             "\n" +
              "  externalInclude: " +
              externalInclude +
              "\n" +
+             "  encoding: " +
+             encoding +
+             "\n" +
              "  sourceFile: " +
              (sourceFile == null ? "unknown" : sourceFile.getPath()) +
              "\n" +
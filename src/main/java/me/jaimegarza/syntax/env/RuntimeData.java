@@ -28,10 +28,15 @@
 */
 package me.jaimegarza.syntax.env;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import me.jaimegarza.syntax.definition.NonTerminal;
+import me.jaimegarza.syntax.definition.RegexToken;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.RuleItem;
 import me.jaimegarza.syntax.definition.State;
@@ -39,6 +44,9 @@ import me.jaimegarza.syntax.definition.Symbol;
 import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.definition.TokenGroup;
 import me.jaimegarza.syntax.definition.Type;
+import me.jaimegarza.syntax.regex.CharacterClass;
+import me.jaimegarza.syntax.regex.Dfa;
+import me.jaimegarza.syntax.util.SymbolSet;
 
 /**
  * Class that is used to hold the state of the phases.
@@ -58,7 +66,15 @@ public class RuntimeData {
   /**
    * List of all rules
    */
-  private List<Rule> rules = new LinkedList<Rule>();
+  private List<Rule> rules = new ArrayList<Rule>();
+  /**
+   * The rules grouped by the id of their left hand non terminal
+   */
+  private Map<Integer, List<Rule>> rulesByLeftHand = new HashMap<Integer, List<Rule>>();
+  /**
+   * The ids of the non terminals that can be empty.  Computed on first use.
+   */
+  private SymbolSet emptySymbols = null;
   /**
    * ID of the automatically generated rules
    */
@@ -66,11 +82,19 @@ public class RuntimeData {
   /**
    * List of non terminals
    */
-  private List<NonTerminal> nonTerminals = new LinkedList<NonTerminal>();
+  private List<NonTerminal> nonTerminals = new ArrayList<NonTerminal>();
   /**
    * list of terminal symbols, or tokens
    */
-  private List<Terminal> terminals = new LinkedList<Terminal>();
+  private List<Terminal> terminals = new ArrayList<Terminal>();
+  /**
+   * Lookups of the terminals, once they are final
+   */
+  private SymbolIndex<Terminal> terminalIndex = null;
+  /**
+   * Lookups of the non terminals, once they are final
+   */
+  private SymbolIndex<NonTerminal> nonTerminalIndex = null;
   /**
    * List of types
    */
@@ -79,6 +103,15 @@ public class RuntimeData {
    * List of error groups
    */
   private List<TokenGroup> errorGroups = new LinkedList<TokenGroup>();
+  /**
+   * List of the tokens recognized by regular expressions
+   */
+  private List<RegexToken> regexTokens = new ArrayList<RegexToken>();
+  /**
+   * The automaton of the regular expressions, or null if there are none
+   */
+  private Dfa lexerDfa;
+  private List<CharacterClass> characterClasses = new ArrayList<CharacterClass>();
   /**
    * List of states
    */
@@ -91,6 +124,27 @@ public class RuntimeData {
    * How many actions are there in the action table?
    */
   private int numberOfActions;
+  /**
+   * How many states share the actions of a previous state?
+   */
+  private int numberOfSharedActionRows;
+  /**
+   * How many actions were saved by sharing them?
+   */
+  private int numberOfSharedActions;
+  /**
+   * For comb tables, the action of each comb vector entry
+   */
+  private int combNext[];
+  /**
+   * For comb tables, the displacement of the row that owns each
+   * comb vector entry, or -1 if the entry is free
+   */
+  private int combCheck[];
+  /**
+   * For comb tables, the terminal ids hashed by token, or -1 if the entry is free
+   */
+  private int tokenHash[];
   /**
    * How many errors are there in the error table?
    */
@@ -115,14 +169,6 @@ public class RuntimeData {
    * Keep the current character here
    */
   public char currentCharacter;
-  /**
-   * Current source line number
-   */
-  public int lineNumber = 1;
-  /**
-   * Current column in the source
-   */
-  public int columnNumber;
   /**
    * The token's value
    */
@@ -141,19 +187,89 @@ public class RuntimeData {
   private Environment environment;
 
   /**
-   * Check to see if a rule identified by nonTerminalId is empty, i.e. it has no
-   * rule items.
+   * Check to see if a non terminal identified by nonTerminalId can be empty, 
+   * i.e. it has a rule with no rule items, or a rule whose items are all non
+   * terminals that can be empty.
    * 
-   * @param nonTerminalId is the id of the rule to check
+   * @param nonTerminalId is the id of the non terminal to check
    * @return true or false
    */
   public boolean symbolCanBeEmpty(int nonTerminalId) {
+    if (emptySymbols == null) {
+      emptySymbols = computeEmptySymbols();
+    }
+    return emptySymbols.contains(nonTerminalId);
+  }
+
+  /**
+   * Find all the non terminals that can be empty.  Rules are visited until 
+   * no more non terminals are found to be empty.
+   * 
+   * @return the set of ids of the non terminals that can be empty
+   */
+  private SymbolSet computeEmptySymbols() {
+    SymbolSet empty = new SymbolSet();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Rule rule : rules) {
+        if (empty.contains(rule.getLeftHandId())) {
+          continue;
+        }
+        boolean allEmpty = true;
+        for (RuleItem item : rule.getItems()) {
+          if (!(item.getSymbol() instanceof NonTerminal) || !empty.contains(item.getSymbolId())) {
+            allEmpty = false;
+            break;
+          }
+        }
+        if (allEmpty) {
+          empty.add(rule.getLeftHandId());
+          changed = true;
+        }
+      }
+    }
+    return empty;
+  }
+
+  /**
+   * Group the rules by their left hand non terminal.  To be called once the
+   * symbol ids are final and the rules have been numbered.
+   */
+  public void indexRules() {
+    rulesByLeftHand.clear();
     for (Rule rule : rules) {
-      if (rule.getLeftHand().getId() == nonTerminalId && rule.getItems().size() == 0) {
-        return true;
+      List<Rule> group = rulesByLeftHand.get(rule.getLeftHandId());
+      if (group == null) {
+        group = new ArrayList<Rule>();
+        rulesByLeftHand.put(rule.getLeftHandId(), group);
       }
+      group.add(rule);
+    }
+  }
+
+  /**
+   * Find the rules that have a given non terminal on the left hand side
+   * @param nonTerminalId is the id of the non terminal
+   * @return the rules, in grammar order.  Empty if there are none.
+   */
+  public List<Rule> getRulesWithLeftHand(int nonTerminalId) {
+    List<Rule> group = rulesByLeftHand.get(nonTerminalId);
+    if (group == null) {
+      return Collections.emptyList();
     }
-    return false;
+    return group;
+  }
+
+  /**
+   * Index the terminals and non terminals by id, name and token.  To be called
+   * once the symbols are final, that is, when the ids and tokens have been
+   * assigned.  From then on the symbol lookups no longer scan the lists,
+   * except for non terminals by token.
+   */
+  public void indexSymbols() {
+    terminalIndex = new SymbolIndex<Terminal>(terminals);
+    nonTerminalIndex = new SymbolIndex<NonTerminal>(nonTerminals);
   }
 
   /**
@@ -208,6 +324,9 @@ public class RuntimeData {
    * @return the terminal, or null if not found
    */
   public Terminal findTerminalByName(String name) {
+    if (terminalIndex != null) {
+      return countSymbol(terminalIndex.findByName(name));
+    }
     return findSymbolByName(terminals, name);
   }
 
@@ -217,6 +336,9 @@ public class RuntimeData {
    * @return the terminal, or null if not found
    */
   public Terminal findTerminalByToken(int tokenId) {
+    if (terminalIndex != null) {
+      return terminalIndex.findByToken(tokenId);
+    }
     return findSymbolByToken(terminals, tokenId);
   }
 
@@ -226,6 +348,9 @@ public class RuntimeData {
    * @return the terminal, or null if not found
    */
   public Terminal findTerminalById(int id) {
+    if (terminalIndex != null) {
+      return terminalIndex.findById(id);
+    }
     return findSymbolById(terminals, id);
   }
 
@@ -235,11 +360,16 @@ public class RuntimeData {
    * @return the terminal, or null if not found
    */
   public NonTerminal findNonTerminalByName(String name) {
+    if (nonTerminalIndex != null) {
+      return countSymbol(nonTerminalIndex.findByName(name));
+    }
     return findSymbolByName(nonTerminals, name);
   }
 
   /**
-   * Find one non terminal by token
+   * Find one non terminal by token.  The tokens of the non terminals are
+   * renumbered when the gotos are compacted, after the index was built,
+   * so the list is always scanned.
    * @param tokenId the token of the symbol
    * @return the terminal, or null if not found
    */
@@ -253,9 +383,24 @@ public class RuntimeData {
    * @return the terminal, or null if not found
    */
   public NonTerminal findNonTerminalById(int id) {
+    if (nonTerminalIndex != null) {
+      return nonTerminalIndex.findById(id);
+    }
     return findSymbolById(nonTerminals, id);
   }
 
+  /**
+   * Finding a symbol by name counts as a reference to it
+   * @param symbol the symbol found.  Can be null.
+   * @return the same symbol
+   */
+  private <T extends Symbol> T countSymbol(T symbol) {
+    if (symbol != null) {
+      symbol.setCount(symbol.getCount() + 1);
+    }
+    return symbol;
+  }
+
   /**
    * Locate a type
    * @param name the name of the type
@@ -328,6 +473,7 @@ public class RuntimeData {
    */
   public void setNonTerminals(List<NonTerminal> nonTerminals) {
     this.nonTerminals = nonTerminals;
+    this.nonTerminalIndex = null;
   }
 
   /**
@@ -342,6 +488,7 @@ public class RuntimeData {
    */
   public void setTerminals(List<Terminal> terminals) {
     this.terminals = terminals;
+    this.terminalIndex = null;
   }
 
   /**
@@ -400,6 +547,76 @@ public class RuntimeData {
     this.numberOfActions = numberOfActions;
   }
 
+  /**
+   * @return the numberOfSharedActionRows
+   */
+  public int getNumberOfSharedActionRows() {
+    return numberOfSharedActionRows;
+  }
+
+  /**
+   * @param numberOfSharedActionRows the numberOfSharedActionRows to set
+   */
+  public void setNumberOfSharedActionRows(int numberOfSharedActionRows) {
+    this.numberOfSharedActionRows = numberOfSharedActionRows;
+  }
+
+  /**
+   * @return the numberOfSharedActions
+   */
+  public int getNumberOfSharedActions() {
+    return numberOfSharedActions;
+  }
+
+  /**
+   * @param numberOfSharedActions the numberOfSharedActions to set
+   */
+  public void setNumberOfSharedActions(int numberOfSharedActions) {
+    this.numberOfSharedActions = numberOfSharedActions;
+  }
+
+  /**
+   * @return the combNext
+   */
+  public int[] getCombNext() {
+    return combNext;
+  }
+
+  /**
+   * @param combNext the combNext to set
+   */
+  public void setCombNext(int[] combNext) {
+    this.combNext = combNext;
+  }
+
+  /**
+   * @return the combCheck
+   */
+  public int[] getCombCheck() {
+    return combCheck;
+  }
+
+  /**
+   * @param combCheck the combCheck to set
+   */
+  public void setCombCheck(int[] combCheck) {
+    this.combCheck = combCheck;
+  }
+
+  /**
+   * @return the tokenHash
+   */
+  public int[] getTokenHash() {
+    return tokenHash;
+  }
+
+  /**
+   * @param tokenHash the tokenHash to set
+   */
+  public void setTokenHash(int[] tokenHash) {
+    this.tokenHash = tokenHash;
+  }
+
   /**
    * @return the numberOfErrors
    */
@@ -491,4 +708,32 @@ public class RuntimeData {
     return errorGroups;
   }
 
+  /**
+   * @return the regexTokens
+   */
+  public List<RegexToken> getRegexTokens() {
+    return regexTokens;
+  }
+
+  /**
+   * @return the lexerDfa
+   */
+  public Dfa getLexerDfa() {
+    return lexerDfa;
+  }
+
+  /**
+   * @param lexerDfa the lexerDfa to set
+   */
+  public void setLexerDfa(Dfa lexerDfa) {
+    this.lexerDfa = lexerDfa;
+  }
+
+  /**
+   * @return the characterClasses
+   */
+  public List<CharacterClass> getCharacterClasses() {
+    return characterClasses;
+  }
+
 }
@@ -0,0 +1,115 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.env;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.jaimegarza.syntax.definition.Symbol;
+
+/**
+ * Lookup tables for a list of symbols, by id, name and token.<p>
+ * 
+ * The index is a snapshot.  It is built once the symbols are final, i.e.
+ * after parsing when ids and tokens have been assigned, and it is not
+ * updated if the list changes afterwards.  When several symbols share a
+ * key, the first one in the list is found, just as a scan of the list
+ * would.
+ * 
+ * @author jaimegarza@gmail.com
+ *
+ * @param <T> the type of symbol
+ */
+class SymbolIndex<T extends Symbol> {
+  /** the smallest id in the list */
+  private int firstId;
+  /** symbols by id, offset by the first id */
+  private List<T> byId;
+  /** symbols by name */
+  private Map<String, T> byName = new HashMap<String, T>();
+  /** symbols by token */
+  private Map<Integer, T> byToken = new HashMap<Integer, T>();
+
+  /**
+   * Construct the index of a list of symbols
+   * @param symbols the symbols to index
+   */
+  SymbolIndex(List<T> symbols) {
+    int lastId = -1;
+    firstId = Integer.MAX_VALUE;
+    for (T symbol : symbols) {
+      firstId = Math.min(firstId, symbol.getId());
+      lastId = Math.max(lastId, symbol.getId());
+    }
+    byId = new ArrayList<T>();
+    for (int id = firstId; id <= lastId; id++) {
+      byId.add(null);
+    }
+    for (T symbol : symbols) {
+      if (byId.get(symbol.getId() - firstId) == null) {
+        byId.set(symbol.getId() - firstId, symbol);
+      }
+      if (!byName.containsKey(symbol.getName())) {
+        byName.put(symbol.getName(), symbol);
+      }
+      if (!byToken.containsKey(symbol.getToken())) {
+        byToken.put(symbol.getToken(), symbol);
+      }
+    }
+  }
+
+  /**
+   * @param id the id of the symbol
+   * @return the symbol, or null if not found
+   */
+  T findById(int id) {
+    if (id < firstId || id - firstId >= byId.size()) {
+      return null;
+    }
+    return byId.get(id - firstId);
+  }
+
+  /**
+   * @param name the name of the symbol
+   * @return the symbol, or null if not found
+   */
+  T findByName(String name) {
+    return byName.get(name);
+  }
+
+  /**
+   * @param tokenId the token of the symbol
+   * @return the symbol, or null if not found
+   */
+  T findByToken(int tokenId) {
+    return byToken.get(tokenId);
+  }
+}
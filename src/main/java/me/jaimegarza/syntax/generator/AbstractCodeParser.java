@@ -29,11 +29,13 @@
 package me.jaimegarza.syntax.generator;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
+import java.util.Set;
 
 import me.jaimegarza.syntax.EmbeddedCodeProcessor;
 import me.jaimegarza.syntax.Lexer;
@@ -41,6 +43,7 @@ import me.jaimegarza.syntax.ParsingException;
 import me.jaimegarza.syntax.definition.Associativity;
 import me.jaimegarza.syntax.definition.ErrorToken;
 import me.jaimegarza.syntax.definition.NonTerminal;
+import me.jaimegarza.syntax.definition.RegexToken;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.RuleItem;
 import me.jaimegarza.syntax.definition.Symbol;
@@ -48,6 +51,10 @@ import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.definition.TokenGroup;
 import me.jaimegarza.syntax.definition.Type;
 import me.jaimegarza.syntax.env.Environment;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.regex.Dfa;
+import me.jaimegarza.syntax.regex.RegexCompiler;
+import me.jaimegarza.syntax.regex.node.RegexNode;
 import me.jaimegarza.syntax.util.FormattingPrintStream;
 import me.jaimegarza.syntax.util.PathUtils;
 
@@ -65,7 +72,12 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
 
   protected static final String DISTINGUISHED_SYMBOL_NAME = "$start";
 
-  protected Stack<Character> inputChars = new Stack<Character>();
+  /* Where the regex scanner is within a character class */
+  protected static final int NO_CLASS = 0;
+  protected static final int CLASS_START = 1;
+  protected static final int CLASS_NEGATED = 2;
+  protected static final int CLASS_CHARACTERS = 3;
+
   protected boolean bActionDone = false;
   protected int currentRuleIndex;
   protected Type currentType;
@@ -74,6 +86,11 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
   protected boolean isEqual;
   protected boolean isError;
   protected boolean isRegex;
+  protected boolean isRegexEnded;
+  protected boolean regexRepeat;
+  protected int regexClass = NO_CLASS;
+  private String regexLexerMode;
+  private FormattingPrintStream regexAction;
   protected int tokenNumber;
   protected String currentNonTerminalName;
   protected boolean mustClose;
@@ -145,10 +162,27 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
       terminal.setFullName(fullName);
     }
     
-    //if ($4 != null) {
-    // SetEndToken($4, terminal.getName());
-    //}
-    
+    return true;
+  }
+
+  /**
+   * Declare the regular expression of a token, with the action that
+   * followed the expression, if any
+   * @param id is the short name of the token
+   * @param regex is the tree of the expression, or null if the token has none
+   * @return true
+   */
+  protected boolean declareRegexToken(String id, RegexNode regex) {
+    if (regex != null) {
+      String lexerMode = regexAction != null ? regexLexerMode : DEFAULT_LEXER_MODE;
+      String action = regexAction != null ? regexAction.getWriter().toString() : null;
+      environment.getLexerModePrintStream(lexerMode);
+      runtimeData.getRegexTokens().add(new RegexToken(runtimeData.findTerminalByName(id), lexerMode, regex, action));
+      tokenActionCount++;
+    }
+    isRegexEnded = false;
+    regexLexerMode = null;
+    regexAction = null;
     return true;
   }
   
@@ -487,52 +521,19 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
   }
 
   public char getCharacter() {
-    if (inputChars.size() > 0) {
-      runtimeData.currentCharacter = inputChars.pop();
-      if (runtimeData.currentCharacter == '\n') {
-        runtimeData.lineNumber++;
-        runtimeData.columnNumber = 0;
-      }
-      runtimeData.columnNumber++;
-      return runtimeData.currentCharacter;
-    }
-  
-    // Get one char from stream
-    try {
-      int rc = environment.source.read();
-      runtimeData.currentCharacter = (char) rc;
-      // EOF?
-      if (rc == -1) {
-        runtimeData.currentCharacter = 0;
-      }
-    } catch (IOException e) {
-      runtimeData.currentCharacter = 0;
-    }
-    
-    if (runtimeData.currentCharacter == -1 || runtimeData.currentCharacter == 0) {
-      return 0;
-    }
-  
-    // EOL?
-    if (runtimeData.currentCharacter == '\n') {
-      runtimeData.lineNumber++;
-      runtimeData.columnNumber = 0;
-    }
-  
+    int c = environment.source.read();
+    // EOF?
+    runtimeData.currentCharacter = c == -1 ? 0 : (char) c;
+
     // CTRL-Z?  <-- suspect code
     if (runtimeData.currentCharacter == 26) {
       return 0;
     }
-  
-    runtimeData.columnNumber++;
     return runtimeData.currentCharacter;
   }
 
   public void ungetCharacter(char c) {
-    inputChars.push(c);
-    if (c == '\n') {
-      runtimeData.lineNumber--;
-    }
+    environment.source.unread(c);
   }
 
   /****************************EMBEDDED CODE PROCESSOR **************************/
@@ -850,6 +851,12 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
    */
   protected boolean generateLexerCode(String lexerMode) {
     FormattingPrintStream output = environment.getLexerModePrintStream(lexerMode);
+    if (isRegexEnded) {
+      // the action of a regular expression is emitted after its match
+      regexLexerMode = lexerMode;
+      regexAction = new FormattingPrintStream(environment, new StringWriter());
+      output = regexAction;
+    }
     environment.language.generateLexerCode(output, this);
     tokenActionCount++;
     return true;
@@ -884,6 +891,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
           environment.language.generateLexerModeDefinition(mode, index++);
         }
       }
+      compileRegexTokens(modes);
 
       environment.language.generateLexerHeader();
       if (modes.size() > 1) {
@@ -899,7 +907,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
         for (String mode: modes) {
           FormattingPrintStream stream = environment.lexerModes.get(mode);
           String lexerCode = stream.getWriter().toString();
-          environment.language.emitLine(runtimeData.lineNumber + 1);
+          environment.language.emitLine(environment.source.getLineNumber() + 1);
           environment.language.generateLexerModeHeader(mode);
           environment.output.print(lexerCode);
           environment.output.println();
@@ -909,6 +917,46 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
     }
   }
 
+  /**
+   * Compile the regular expressions of the tokens into one automaton, and
+   * have each lexer mode with expressions run it once its own code is done
+   * @param modes are the sorted lexer modes
+   */
+  private void compileRegexTokens(List<String> modes) {
+    List<RegexToken> tokens = runtimeData.getRegexTokens();
+    if (tokens.size() == 0) {
+      return;
+    }
+    RegexCompiler compiler = new RegexCompiler();
+    Dfa dfa;
+    try {
+      for (RegexToken token : tokens) {
+        compiler.addExpression(modes.indexOf(token.getLexerMode()), token.getRegex());
+      }
+      dfa = compiler.compile(modes.size());
+    } catch (IllegalArgumentException e) {
+      isError = true;
+      environment.error(-1, "%s.", e.getMessage());
+      return;
+    }
+    if (environment.getLanguageEnum() == Language.java && !environment.isBufferedInput() && dfa.canBackUp()) {
+      // only the buffered input of java can read characters again
+      isError = true;
+      environment.error(-1, "Regular expressions that read past what they match need --buffered in java.");
+      return;
+    }
+    runtimeData.setLexerDfa(dfa);
+    if (environment.isVerbose()) {
+      System.out.printf("Regular expressions: %d states, %d character classes\n",
+          dfa.getNumberOfStates(), dfa.getNumberOfClasses());
+    }
+    for (int i = 0; i < modes.size(); i++) {
+      if (dfa.getModeStarts()[i] >= 0) {
+        environment.language.generateRegexDispatch(environment.lexerModes.get(modes.get(i)), modes.get(i), i, tokens);
+      }
+    }
+  }
+
   /**
    * During a declaration, emit the accompanying code
    */
@@ -916,7 +964,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
     while (Character.isWhitespace(runtimeData.currentCharacter)) {
       getCharacter();
     }
-    environment.language.emitLine(runtimeData.lineNumber);
+    environment.language.emitLine(environment.source.getLineNumber());
     while (runtimeData.currentCharacter != '\0') {
       if (runtimeData.currentCharacter == '\\') {
         if ((getCharacter()) == '}') {
@@ -976,7 +1024,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
    * really a structure
    */
   protected boolean generateStructure() {
-    environment.language.emitLine(runtimeData.lineNumber);
+    environment.language.emitLine(environment.source.getLineNumber());
     runtimeData.setStackTypeDefined(true);
     return environment.language.generateStructure(this);
   }
@@ -1156,16 +1204,18 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
   
     int recoveries = 0;
     int terminals = 0;
+    Set<Integer> tokens = new HashSet<Integer>();
+    for (Terminal id : runtimeData.getTerminals()) {
+      tokens.add(id.getToken());
+    }
+    int tok_num = Short.MAX_VALUE+1;
     for (Terminal id : runtimeData.getTerminals()) {
       // Look for the default token for a non assigned terminal symbol
       if (id.getToken() == -1) {
-        int tok_num = 1;
-        for (tok_num = Short.MAX_VALUE+1 ;; tok_num++) {
-          Terminal cual = runtimeData.findTerminalByToken(tok_num);
-          if (cual == null) {
-            break;
-          }
+        while (tokens.contains(tok_num)) {
+          tok_num++;
         }
+        tokens.add(tok_num);
         id.setToken(tok_num);
       }
       id.setId(terminals++);
@@ -1210,6 +1260,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
       id.setFirst(null);
       id.setFollow(null);
     }
+    runtimeData.indexSymbols();
     
     environment.report.printf("\n");
     environment.report
@@ -1249,6 +1300,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
       environment.report.printf("\n");
       i = i + 1;
     }
+    runtimeData.indexRules();
   }
 
   /**
@@ -1302,7 +1354,7 @@ public abstract class AbstractCodeParser extends AbstractPhase implements Lexer,
       getCharacter();
     }
     
-    if (!environment.language.generateRuleCode(this, this, elementCount, nonTerminalName, runtimeData.columnNumber-2)) {
+    if (!environment.language.generateRuleCode(this, this, elementCount, nonTerminalName, environment.source.getColumnNumber()-2)) {
       return false;
     }
     
@@ -94,7 +94,9 @@ public class CodeWriter extends AbstractPhase {
   private void printTables() {
     int stateNumber, action, error;
 
-    if (environment.isPacked() == true) {
+    if (environment.isComb() == true) {
+      environment.language.printCombTables();
+    } else if (environment.isPacked() == true) {
       environment.language.printActionHeader();
       action = 0;
       for (stateNumber = 0; stateNumber < runtimeData.getStates().length; stateNumber++) {
@@ -105,7 +107,9 @@ public class CodeWriter extends AbstractPhase {
           }
         }
       }
+    }
 
+    if (environment.isPacked() == true) {
       environment.language.printGoToTableHeader();
       int gotoIndex = 0;
       for (NonTerminal id : runtimeData.getNonTerminals()) {
@@ -145,7 +149,7 @@ public class CodeWriter extends AbstractPhase {
    */
   private String getSkeletonResourceName() {
     StringBuilder builder = new StringBuilder();
-    String parserStructure = environment.isPacked() ? "packed" : "tabular";
+    String parserStructure = environment.isComb() ? "comb" : environment.isPacked() ? "packed" : "tabular";
     builder.append(environment.getDriver().skeleton())
            .append(RESOURCE_SEPARATOR)
            .append(parserStructure)
@@ -191,13 +195,8 @@ public class CodeWriter extends AbstractPhase {
     }
 
     environment.output.println();
-    environment.language.emitLine(runtimeData.lineNumber + 1);
-
-    int c = environment.source.read();
-    while (c != -1) {
-      environment.output.print((char) c);
-      c = environment.source.read();
-    }
+    environment.language.emitLine(environment.source.getLineNumber() + 1);
+    environment.source.writeRemaining(environment.output);
   }
 
   private void reportSummary() {
@@ -216,6 +215,13 @@ public class CodeWriter extends AbstractPhase {
     environment.report.println("Rules:            " + runtimeData.getRules().size());
     environment.report.println("Errors:           " + runtimeData.getErrorMessages().size());
     environment.report.println("Actions:          " + runtimeData.getNumberOfActions());
+    if (environment.isPacked()) {
+      environment.report.println("Shared Actions:   " + runtimeData.getNumberOfSharedActions() + " in " +
+          runtimeData.getNumberOfSharedActionRows() + " states");
+    }
+    if (environment.isComb()) {
+      environment.report.println("Comb Size:        " + runtimeData.getCombNext().length);
+    }
     environment.report.println("Gotos:            " + runtimeData.getNumberOfGoTos());
     environment.report.println("Recoveries:       " + runtimeData.getNumberOfRecoveries());
     environment.report.println("States:           " + runtimeData.getStates().length);
@@ -0,0 +1,195 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.jaimegarza.syntax.definition.Action;
+import me.jaimegarza.syntax.definition.State;
+import me.jaimegarza.syntax.definition.Terminal;
+import me.jaimegarza.syntax.env.RuntimeData;
+
+/**
+ * Lays out the packed actions of all states in comb vectors, by the
+ * classic row displacement method.<p>
+ * 
+ * Each distinct row of actions is assigned a displacement (its base) such
+ * that the columns of its actions, the terminal ids, fall on entries not
+ * used by any other row.  The entries hold the action in the <i>next</i>
+ * vector, and the base of the row that owns it in the <i>check</i> vector.
+ * An action for a state and a terminal is then found in constant time:
+ * <pre>
+ *   entry = base[state] + column(terminal)
+ *   action = check[entry] == base[state] ? next[entry] : default[state]
+ * </pre>
+ * The base of a state is kept as its position.  Rows without actions get a
+ * base past the end of the vectors, so that they never find an entry.<p>
+ * 
+ * Tokens are mapped to their columns with an open addressing hash table of
+ * terminal ids, so that the runtime does not search the token definitions.
+ *
+ * @author jaimegarza@gmail.com
+ *
+ */
+public class CombPacker {
+  private static final int FREE = -1;
+
+  private RuntimeData runtimeData;
+
+  /**
+   * Construct a packer for the runtime data
+   * @param runtimeData is the data being generated
+   */
+  public CombPacker(RuntimeData runtimeData) {
+    this.runtimeData = runtimeData;
+  }
+
+  /**
+   * Lay out the actions of the given states in the comb vectors, setting
+   * the position of each state to the base of its row.
+   * 
+   * @param states are the states with their packed actions
+   */
+  public void pack(State states[]) {
+    // states sharing actions share the very same list
+    Map<List<Action>, Integer> bases = new IdentityHashMap<List<Action>, Integer>();
+    List<List<Action>> rows = new ArrayList<List<Action>>();
+    for (State state : states) {
+      if (!bases.containsKey(state.getActions())) {
+        bases.put(state.getActions(), FREE);
+        rows.add(state.getActions());
+      }
+    }
+    // fullest rows first, they are the hardest to place
+    Collections.sort(rows, new Comparator<List<Action>>() {
+      public int compare(List<Action> a, List<Action> b) {
+        return b.size() - a.size();
+      }
+    });
+
+    BitSet usedEntries = new BitSet();
+    BitSet usedBases = new BitSet();
+    int size = 0;
+    for (List<Action> row : rows) {
+      if (row.isEmpty()) {
+        continue;
+      }
+      int base = findBase(row, usedEntries, usedBases);
+      usedBases.set(base);
+      for (Action action : row) {
+        usedEntries.set(base + action.getSymbol().getId());
+      }
+      bases.put(row, base);
+      size = Math.max(size, usedEntries.length());
+    }
+
+    int next[] = new int[size];
+    int check[] = new int[size];
+    Arrays.fill(check, FREE);
+    for (Map.Entry<List<Action>, Integer> entry : bases.entrySet()) {
+      int base = entry.getValue();
+      for (Action action : entry.getKey()) {
+        next[base + action.getSymbol().getId()] = action.getStateNumber();
+        check[base + action.getSymbol().getId()] = base;
+      }
+    }
+    for (State state : states) {
+      int base = bases.get(state.getActions());
+      state.setPosition(base == FREE ? size : base);
+    }
+
+    runtimeData.setCombNext(next);
+    runtimeData.setCombCheck(check);
+    runtimeData.setTokenHash(hashTokens(runtimeData));
+  }
+
+  /**
+   * Find the first base where all the actions of a row fall on free entries
+   * @param row is the list of actions
+   * @param usedEntries are the entries of the rows already placed
+   * @param usedBases are the bases of the rows already placed
+   * @return the base
+   */
+  private int findBase(List<Action> row, BitSet usedEntries, BitSet usedBases) {
+    int firstColumn = Integer.MAX_VALUE;
+    for (Action action : row) {
+      firstColumn = Math.min(firstColumn, action.getSymbol().getId());
+    }
+    int base = Math.max(0, usedEntries.nextClearBit(0) - firstColumn);
+    while (true) {
+      if (!usedBases.get(base) && fits(row, base, usedEntries)) {
+        return base;
+      }
+      base++;
+    }
+  }
+
+  /**
+   * @return true if no action of the row falls on a used entry
+   */
+  private boolean fits(List<Action> row, int base, BitSet usedEntries) {
+    for (Action action : row) {
+      if (usedEntries.get(base + action.getSymbol().getId())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Hash the terminal ids by their tokens, resolving collisions with the next
+   * free entry.  The size is the smallest power of two that leaves at least
+   * half of the entries free.  Tabular parsers use it as well.
+   * @param runtimeData is the data being generated
+   * @return the hash table
+   */
+  static int[] hashTokens(RuntimeData runtimeData) {
+    int size = 2;
+    while (size < runtimeData.getTerminals().size() * 2) {
+      size *= 2;
+    }
+    int hash[] = new int[size];
+    Arrays.fill(hash, FREE);
+    for (Terminal terminal : runtimeData.getTerminals()) {
+      int entry = terminal.getToken() & (size - 1);
+      while (hash[entry] != FREE) {
+        entry = (entry + 1) & (size - 1);
+      }
+      hash[entry] = terminal.getId();
+    }
+    return hash;
+  }
+}
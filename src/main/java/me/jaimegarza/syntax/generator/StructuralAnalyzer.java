@@ -28,17 +28,15 @@
 */
 package me.jaimegarza.syntax.generator;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import me.jaimegarza.syntax.AnalysisException;
-import me.jaimegarza.syntax.algorithm.Algorithm;
 import me.jaimegarza.syntax.definition.NonTerminal;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.RuleItem;
 import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.env.Environment;
+import me.jaimegarza.syntax.util.SymbolSet;
 
 /**
  * Phases:
@@ -54,7 +52,6 @@ import me.jaimegarza.syntax.env.Environment;
  *
  */
 public class StructuralAnalyzer extends AbstractPhase {
-  private Set<Integer> searchItems = new HashSet<Integer>();
 
   /**
    * Construct an analizer given an environment
@@ -86,16 +83,24 @@ public class StructuralAnalyzer extends AbstractPhase {
    *          First(&beta;) = First(&lambda;) &cup; First(&delta;)
    *   <li> if &lambda; &isin; T then First(&lambda;) = { &lambda; }
    * </ol>
-   * @param nonTerminalId is the non terminal to compute
-   * @return the set of first for a given symbol, traversing all rules left hand symbol.
+   * Rather than recursing, the first of all the non terminals is computed at
+   * once: every rule merges First(&beta;) into First(&alpha;), and the rules are
+   * visited again until no first set changes.
    */
-  public Set<Integer> getFirst(int nonTerminalId) {
-    Set<Integer> first = new HashSet<Integer>();
+  private void computeFirst() {
+    for (NonTerminal symbol : runtimeData.getNonTerminals()) {
+      symbol.setFirst(new SymbolSet());
+    }
 
-    for (Rule rule : runtimeData.getRules()) {
-      getFirstForAllRules(nonTerminalId, first, rule);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Rule rule : runtimeData.getRules()) {
+        if (addFirstOfItems(rule.getLeftHand().getFirst(), rule.getItems(), 0)) {
+          changed = true;
+        }
+      }
     }
-    return first;
   }
 
   /**
@@ -110,175 +115,86 @@ public class StructuralAnalyzer extends AbstractPhase {
    * In addition, <i>if</i> &exist; r<sub>j</sub>: &gamma; &rarr; &empty;; &gamma; &isin; <b>N</b> &and; &forall; r<sub>j</sub> &isin; (<b>R</b> &isin; <b>G</b>) then<p>
    * Follow(&beta;) = First(&gamma;) &cup; Follow(&alpha;) <p>
    * Please note that to compute follows we analyze each non terminal in the <b>right
-   * side</b> context of all rules.
-   * 
-   * @param nonTerminalId is the non terminal to compute (id of &beta;)
-   * @return
-   */
-  Set<Integer> getFollow(int nonTerminalId) {
-    Set<Integer> follow = new HashSet<Integer>();
-
-    // the follow of the root is always the empty terminal
-    if (nonTerminalId == runtimeData.getRoot().getId()) {
-      follow.add(0);
-      return follow;
-    }
-
-    for (Rule rule : runtimeData.getRules()) {
-      getFollowFromARule(nonTerminalId, follow, rule);
-    }
-    return follow;
-  }
-
-  /**
-   * Compute the follow of a rule<p>
-   * see {@link #getFollow(int)} for additional description on what a follow is<p>
-   * This routine finds all &beta; elements from a rule r<sub>i</sub>: &alpha; &rarr; &mu; &beta; &gamma;
-   * @param nonTerminalId is the id of &beta;
-   * @param follow is where to keep adding the follow
-   * @param rule is the {@link Rule} to analyze
-   */
-  private void getFollowFromARule(int nonTerminalId, Set<Integer> follow, Rule rule) {
-    List<RuleItem> items = rule.getItems();
-    int itemCount = items.size();
-    for (int itemIndex = 0; itemIndex < itemCount; itemIndex++) {
-      RuleItem item = items.get(itemIndex);
-      if (item.getSymbolId() == nonTerminalId) {
-        getFollowInRuleContext(nonTerminalId, follow, rule, items, itemCount, itemIndex);
-      }
-    }
-  }
-
-  /**
-   * Get the follows for a given item.
-   * see {@link #getFollow(int)} for additional description on what a follow is<p>
-   * 
-   * 
-   * @param nonTerminalId is the id of &beta;
-   * @param follow is the set where to add all non terminals that constitute the follow
-   * @param rule the {@link Rule} where &beta; can appear
-   * @param items is the contex of {@link RuleItem}s that can be around &beta;
-   * @param itemCount number of items in the rule r<subi</sub>
-   * @param itemIndex the index in the items where &beta; appears
+   * side</b> context of all rules.<p>
+   * As with the first, the follow of all the non terminals is computed at once, 
+   * visiting the rules until no follow set changes.  The follow of the root is 
+   * always the empty terminal.
    */
-  private void getFollowInRuleContext(int nonTerminalId, Set<Integer> follow, Rule rule, List<RuleItem> items, int itemCount,
-      int itemIndex) {
-    for (int j = itemIndex; j < itemCount; j++) {
-      if (j == itemCount - 1) { // is the index pointing to the last item?
-        if (rule.getLeftHandId() != nonTerminalId) {
-          if (rule.getLeftHand().getFollow() == null) {
-            if (!searchItems.contains(nonTerminalId)) {
-              searchItems.add(nonTerminalId);
-              Set<Integer> faux = getFollow(rule.getLeftHandId());
-              searchItems.remove(nonTerminalId);
-              follow.addAll(faux);
-            }
-          } else {
-            follow.addAll(rule.getLeftHand().getFollow());
+  private void computeFollow() {
+    for (NonTerminal symbol : runtimeData.getNonTerminals()) {
+      symbol.setFollow(new SymbolSet());
+    }
+    runtimeData.getRoot().getFollow().add(0);
+
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Rule rule : runtimeData.getRules()) {
+        List<RuleItem> items = rule.getItems();
+        for (int itemIndex = 0; itemIndex < items.size(); itemIndex++) {
+          RuleItem item = items.get(itemIndex);
+          if (!(item.getSymbol() instanceof NonTerminal) || item.getSymbolId() == runtimeData.getRoot().getId()) {
+            continue;
+          }
+          SymbolSet follow = ((NonTerminal) item.getSymbol()).getFollow();
+          if (addFirstOfItems(follow, items, itemIndex + 1)) {
+            changed = true;
+          }
+          if (canBeEmpty(items, itemIndex + 1) && follow.addAll(rule.getLeftHand().getFollow())) {
+            changed = true;
           }
         }
-      } else {
-        if (!getFollowForItem(j + 1, follow, items)) {
-          break;
-        }
-      }
-    }
-  }
-
-  /**
-   * Get the follow for item<p>
-   * see {@link #getFollow(int)} for additional description on what a follow is<p>
-   * 
-   * @param nextItemIndex is the index in the rules items for &gamma;
-   * @param follow is the set where to add all non terminals that constitute the follow
-   * @param items is the contex of {@link RuleItem}s that can be around &beta;
-   * @return true if symbol &gamma
-   */
-  private boolean getFollowForItem(int nextItemIndex, Set<Integer> follow, List<RuleItem> items) {
-    if (items.get(nextItemIndex).getSymbol() instanceof NonTerminal) {
-      NonTerminal nonTerminal = (NonTerminal) items.get(nextItemIndex).getSymbol();
-      follow.addAll(nonTerminal.getFirst());
-      if (runtimeData.symbolCanBeEmpty(nonTerminal.getId()) == false) {
-        return false;
-      } else {
-        return true;
       }
-    } else {
-      follow.add(items.get(nextItemIndex).getSymbol().getId());
-      return false;
     }
   }
 
   /**
-   * Look at the rule items and get the first of the element. The first is the
-   * set of terminal symbols that a given non-terminal can start with.
+   * Merge the first of a sequence of rule items into a set.  The first of the
+   * sequence is the first of its leading item and, while the items can be 
+   * empty, the first of the items that come after it.
    * 
-   * <ul>
-   * <li>For non-empty non-terminals, it will get the non-terminal data</li>
-   * <li>For empty non-terminals it will get the non-terminal data and move to
-   * the next</li>
-   * <li>For terminals, just add the symbol id to the set and finish</li>
-   * </ul>
-   * 
-   * @param ntId
-   *          the id of the non-terminal
-   * @param first
-   *          the set where to collect the terminals
-   * @param rule
-   *          the rule to be investigated
+   * @param set is where to collect the terminals
+   * @param items are the rule items
+   * @param itemIndex is the index of the item where the sequence starts
+   * @return true if the set changed
    */
-  private void getFirstForAllRules(int ntId, Set<Integer> first, Rule rule) {
-    if (rule.getLeftHand().getId() != ntId) {
-      return; // rule left hand is not the desired id
-    }
-
-    for (RuleItem item : rule.getItems()) {
+  private boolean addFirstOfItems(SymbolSet set, List<RuleItem> items, int itemIndex) {
+    boolean changed = false;
+    for (int i = itemIndex; i < items.size(); i++) {
+      RuleItem item = items.get(i);
       if (item.getSymbol() instanceof NonTerminal) {
-        getFirstForNonTerminal(ntId, first, item);
-        if (runtimeData.symbolCanBeEmpty(item.getSymbol().getId()) == false) {
+        if (set.addAll(((NonTerminal) item.getSymbol()).getFirst())) {
+          changed = true;
+        }
+        if (runtimeData.symbolCanBeEmpty(item.getSymbolId()) == false) {
           break; // non propagating first. Stop.
         }
       } else {
-        first.add(item.getSymbolId());
+        if (set.add(item.getSymbolId())) {
+          changed = true;
+        }
+        break;
       }
     }
+    return changed;
   }
 
   /**
-   * The first is the set of terminal symbols that a given non-terminal can
-   * start with.
+   * Check if a sequence of rule items can be empty, that is, all of its items
+   * are non terminals that can be empty.
    * 
-   * @param ntId
-   *          the id of the non-terminal
-   * @param first
-   *          the set where to collect the terminals
-   * @param item
-   *          the item in the rule to be investigated
+   * @param items are the rule items
+   * @param itemIndex is the index of the item where the sequence starts
+   * @return true if the sequence can be empty
    */
-  private void getFirstForNonTerminal(int ntId, Set<Integer> first, RuleItem item) {
-    if (item.getSymbol().getId() == ntId) {
-      return; // if left hand is the same as the desired number, skip
-    }
-
-    if (!(item.getSymbol() instanceof NonTerminal)) {
-      return;
-    }
-
-    NonTerminal nt = (NonTerminal) item.getSymbol();
-    if (nt.getFirst() == null) { // not yet computed. Go get it recursivelly
-      // This is a controlled recursion. I have a set of non-terminals being
-      // analized recursivelly.
-      // This is done such that I do not do infinite recursion
-      if (!searchItems.contains(ntId)) {
-        // control non infinite recursion
-        searchItems.add(ntId);
-        Set<Integer> faux = getFirst(item.getSymbol().getId());
-        searchItems.remove(ntId);
-        first.addAll(faux);
+  private boolean canBeEmpty(List<RuleItem> items, int itemIndex) {
+    for (int i = itemIndex; i < items.size(); i++) {
+      RuleItem item = items.get(i);
+      if (!(item.getSymbol() instanceof NonTerminal) || runtimeData.symbolCanBeEmpty(item.getSymbolId()) == false) {
+        return false;
       }
-    } else {
-      first.addAll(nt.getFirst());
     }
+    return true;
   }
 
   /**
@@ -295,7 +211,7 @@ public class StructuralAnalyzer extends AbstractPhase {
       }
     }
 
-    if (environment.getAlgorithmType() == Algorithm.LALR) {
+    if (!environment.algorithm.hasFollows()) {
       return;
     }
 
@@ -317,37 +233,17 @@ public class StructuralAnalyzer extends AbstractPhase {
     if (environment.isVerbose()) {
       System.out.println("First & Follow");
     }
-    for (NonTerminal symbol : runtimeData.getNonTerminals()) {
-      searchItems.clear();
-      if (environment.isVerbose()) {
-        System.out.printf("First of %d. %-40.40s\n", symbol.getId(), symbol.getName());
-      }
-      Set<Integer> first = getFirst(symbol.getId());
-      if (first == null) {
-        throw new AnalysisException("Internal Error computing first set.");
-      }
-      symbol.setFirst(first);
-    }
+    computeFirst();
 
     // LALR does not compute follows. Only SLR. LALR does it by going case by
     // case in the table
-    // generation to compute contextual follows.
-    if (environment.getAlgorithmType() == Algorithm.LALR) {
+    // generation to compute contextual follows, and so does LR.
+    if (!environment.algorithm.hasFollows()) {
       print();
       return;
     }
 
-    for (NonTerminal symbol : runtimeData.getNonTerminals()) {
-      searchItems.clear();
-      if (environment.isVerbose()) {
-        System.out.printf("Follow of %d. %-40.40s\n", symbol.getId(), symbol.getName());
-      }
-      Set<Integer> follow = getFollow(symbol.getId());
-      if (follow == null) {
-        throw new AnalysisException("Internal Error computing follow set.");
-      }
-      symbol.setFollow(follow);
-    }
+    computeFollow();
     if (environment.isVerbose()) {
       System.out.println("First & Follow OK");
     }
@@ -28,15 +28,28 @@
 */
 package me.jaimegarza.syntax.generator;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import me.jaimegarza.syntax.definition.Action;
 import me.jaimegarza.syntax.definition.Associativity;
 import me.jaimegarza.syntax.definition.Dot;
 import me.jaimegarza.syntax.definition.Driver;
 import me.jaimegarza.syntax.definition.GoTo;
+import me.jaimegarza.syntax.definition.KernelKey;
 import me.jaimegarza.syntax.definition.NonTerminal;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.RuleItem;
@@ -45,6 +58,7 @@ import me.jaimegarza.syntax.definition.Symbol;
 import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.definition.TokenGroup;
 import me.jaimegarza.syntax.env.Environment;
+import me.jaimegarza.syntax.util.FormattingPrintStream;
 
 /**
  * Phases:
@@ -73,52 +87,159 @@ public class TableGenerator extends AbstractPhase {
   private int finalState = 0;
   private int actionNumber = 0;
   private int numberOfGotos = 0;
+  private int numberOfSharedActionRows = 0;
+  private int numberOfSharedActions = 0;
   private List<String> errorMessages = new LinkedList<String>();
+  /**
+   * The states with a given kernel.  Algorithms that split states may have
+   * more than one.
+   */
+  private Map<KernelKey, List<Integer>> kernelIndex = new HashMap<KernelKey, List<Integer>>();
+  /**
+   * Whether a transition was moved to another state, which may leave states
+   * that cannot be reached
+   */
+  private boolean transitionsMoved = false;
+  /**
+   * The first state with a given list of actions, so that states can share them
+   */
+  private Map<List<Action>, Integer> actionsIndex = new HashMap<List<Action>, Integer>();
+  /**
+   * The states whose lookaheads need to be carried over to their transitions
+   */
+  private BitSet reviewStates = new BitSet();
+  /**
+   * The transitions of each state, known since the first time the state was reviewed
+   */
+  private List<List<Transition>> transitions = new ArrayList<List<Transition>>();
 
   /**
-   * Construct a TableGenerator for an environment
-   * @param environment
+   * A transition from a state to another, on the symbol pointed by a dot
    */
-  public TableGenerator(Environment environment) {
-    super(environment);
+  private static class Transition {
+    /**
+     * The index of the first dot in the state that points to the symbol
+     */
+    int dotIndex;
+    /**
+     * the destination state
+     */
+    int gotoState;
+
+    Transition(int dotIndex, int gotoState) {
+      this.dotIndex = dotIndex;
+      this.gotoState = gotoState;
+    }
   }
 
   /**
-   * Locate a dot in the list, by rule and rule item.
-   * 
-   * @param dots the list of dots
-   * @param rule the rule of the dot
-   * @param item the rule item of the dot
-   * @return a dot in the list, or null
+   * The row of a state as computed on the final phase.  Rows only depend on
+   * their own state, so they can be computed in any order, and then be
+   * completed in state order, which is when the report is written and
+   * positions, gotos and error messages are assigned.
    */
-  private Dot findDot( List<Dot> dots, Rule rule, RuleItem item) {
-    for (Dot i : dots) {
-      if (i.getRule() == rule && i.getItem() == item) {
-        return i;
-      }
+  private static class StateRow {
+    /**
+     * the state of the row
+     */
+    int stateNumber;
+    /**
+     * the parsing table's row, with shifts, gotos and reduces
+     */
+    int parserLine[];
+    /**
+     * the report of the state when computed away from the report stream, or null
+     */
+    String report;
+    /**
+     * the conflicts to be warned about
+     */
+    List<Conflict> conflicts = new ArrayList<Conflict>();
+    /**
+     * the default action of a packed row
+     */
+    int defaultAction;
+    /**
+     * the actions of a packed row
+     */
+    List<Action> actions;
+    /**
+     * the error message of the state, or null
+     */
+    String errorMessage;
+
+    StateRow(int stateNumber, int parserLine[]) {
+      this.stateNumber = stateNumber;
+      this.parserLine = parserLine;
     }
-    return null;
+
+    void addConflict(int lineNumber, String format, Object... args) {
+      conflicts.add(new Conflict(lineNumber, String.format(format, args)));
+    }
+  }
+
+  /**
+   * A conflict found while computing a row, to be warned about in state order
+   */
+  private static class Conflict {
+    /**
+     * the line number of the rule in conflict
+     */
+    int lineNumber;
+    /**
+     * the warning message
+     */
+    String message;
+
+    Conflict(int lineNumber, String message) {
+      this.lineNumber = lineNumber;
+      this.message = message;
+    }
+  }
+
+  /**
+   * Construct a TableGenerator for an environment
+   * @param environment
+   */
+  public TableGenerator(Environment environment) {
+    super(environment);
   }
 
   /**
    * Locate a state with the given dots.  Kernel dots
-   * fully identify a state
+   * fully identify a state, so the states are indexed by
+   * the {@link KernelKey} of their kernel dots.  When the
+   * algorithm splits states, the first state that the dots
+   * can be merged into is used.
    * @param markers is the set of dots in the state
    * @return a stateIndex, or finalState + 1 (meaning, a new state) 
    */
   private int findStateWithDots(List<Dot> markers) {
-    int stateNumber;
-
-    for (stateNumber = 1; stateNumber <= finalState; stateNumber++) {
-      List<Dot> originalMarkers = I[stateNumber].getKernelDots();
-      // using containsAll as a protective measure since equals implies order as well.
-      if (markers.containsAll(originalMarkers)) { //if (markers.equals(originalMarkers)) {
-        return stateNumber;
+    List<Integer> stateNumbers = kernelIndex.get(new KernelKey(markers));
+    if (stateNumbers != null) {
+      for (int stateNumber : stateNumbers) {
+        if (environment.algorithm.isCompatible(I[stateNumber], markers)) {
+          return stateNumber;
+        }
       }
     }
     return finalState + 1;
   }
 
+  /**
+   * Add a state to the index of kernels
+   * @param stateNumber is the state to add
+   */
+  private void indexState(int stateNumber) {
+    KernelKey key = new KernelKey(I[stateNumber].getKernelDots());
+    List<Integer> stateNumbers = kernelIndex.get(key);
+    if (stateNumbers == null) {
+      stateNumbers = new ArrayList<Integer>(1);
+      kernelIndex.put(key, stateNumbers);
+    }
+    stateNumbers.add(stateNumber);
+  }
+
   /**
    * Compute the closure of a state.  From {@link State}:<p>
    * ...the closure of a dot -- where &chi; &epsilon; <b>N</b> &cup; <b>T</b> and &beta; 
@@ -133,75 +254,76 @@ public class TableGenerator extends AbstractPhase {
    * @param state is the state whose closure is being computed
    */
   private void closure(State state) {
-    for (Dot marker = state.getDot(0); marker != null; marker = marker.next()) {
+    List<Dot> kernelDots = state.getKernelDots();
+    List<Dot> closureDots = state.getClosureDots();
+    // closure dots get appended while we traverse them
+    for (int i = 0; i < kernelDots.size() + closureDots.size(); i++) {
+      Dot marker = i < kernelDots.size() ? kernelDots.get(i) : closureDots.get(i - kernelDots.size());
       if (marker.getItem() != null && marker.getItem().getSymbol() instanceof NonTerminal) {
-        for (Rule rule : runtimeData.getRules()) {
-          if (rule.getLeftHandId() == marker.getItem().getSymbolId()) {
-            Dot auxiliary = findDot(state.getAllDots(), rule, rule.getItem(0));
-            if (auxiliary != null) {
-              environment.algorithm.mergeLookaheads(marker, auxiliary);
-            } else {
-              auxiliary = new Dot(state, rule, rule.getItem(0));
-              environment.algorithm.mergeLookaheads(marker, auxiliary);
-              state.addClosureDot(auxiliary);
-            }
+        for (Rule rule : runtimeData.getRulesWithLeftHand(marker.getItem().getSymbolId())) {
+          Dot auxiliary = state.findDot(rule, rule.getItem(0));
+          if (auxiliary != null) {
+            environment.algorithm.mergeLookaheads(marker, auxiliary);
+          } else {
+            auxiliary = new Dot(state, rule, rule.getItem(0));
+            environment.algorithm.mergeLookaheads(marker, auxiliary);
+            state.addClosureDot(auxiliary);
           }
         }
       }
     }
+    environment.algorithm.completeLookaheads(state);
   }
 
   /**
    * Given a state, write it to the literal report
-   * @param stateNum is the desired state
-   */
-  private void printStateReport(int stateNum) {
-    environment.report.println();
-    environment.report.printf("State #%3d", stateNum);
-    if (I[stateNum].getFrom() >= 0) {
-      environment.report.printf(" Goto from state %d with symbol %s\n", I[stateNum].getFrom(), I[stateNum].getSymbol()
-          .getName());
+   * @param report is the stream where the state is written
+   * @param state is the desired state
+   * @param dots are the dots of the state, kernel dots first
+   */
+  private void printStateReport(FormattingPrintStream report, State state, List<Dot> dots) {
+    report.println();
+    report.printf("State #%3d", state.getId());
+    if (state.getFrom() >= 0) {
+      report.printf(" Goto from state %d with symbol %s\n", state.getFrom(), state.getSymbol().getName());
     } else {
-      environment.report.println(" - Root");
-    }
-    for (Dot dot : I[stateNum].getKernelDots()) {
-      printDotReport(dot);
-    }
-    if (I[stateNum].getClosureDots().size() > 0) {
-      environment.report.println("    ---------------------------------------------------------");
+      report.println(" - Root");
     }
-    for (Dot dot : I[stateNum].getClosureDots()) {
-      printDotReport(dot);
+    int kernelSize = state.getKernelDots().size();
+    for (int i = 0; i < dots.size(); i++) {
+      if (i == kernelSize) {
+        report.println("    ---------------------------------------------------------");
+      }
+      printDotReport(report, dots.get(i));
     }
   }
 
   /**
    * Given a dot, report it to the textual stream
    * 
+   * @param report is the stream where the dot is written
    * @param dot is the dot to report
    */
-  private void printDotReport(Dot dot) {
-    environment.report.printf("%3d ", dot.getRule().getRulenum());
-    environment.report.printf("%s -> ", dot.getRule().getLeftHand().getName());
+  private void printDotReport(FormattingPrintStream report, Dot dot) {
+    report.printf("%3d ", dot.getRule().getRulenum());
+    report.printf("%s -> ", dot.getRule().getLeftHand().getName());
     RuleItem item = dot.getRule().getItem(0);
     if (item == null) {
-      environment.report.print(".");
+      report.print(".");
     }
     int i = 0;
     while (item != null) {
       if (dot.getItem() != null && dot.getItem() == item) {
-        environment.report.print(". ");
+        report.print(". ");
       }
-      environment.report.printf("%s ", item.getSymbol().getName());
+      report.printf("%s ", item.getSymbol().getName());
       item = dot.getRule().getItem(++i);
       if (item == null && dot.getItem() == null) {
-        environment.report.print(".");
+        report.print(".");
       }
     }
-    environment.algorithm.printLookahead(dot);
-    //dot = dot.next();
-    environment.report.println();
-    //return dot;
+    environment.algorithm.printLookahead(report, dot);
+    report.println();
   }
 
   /**
@@ -245,7 +367,8 @@ public class TableGenerator extends AbstractPhase {
   /**
    * A parsing line is a sparsely populated array with multiple zeros.  This
    * method returns a list of those values that are non zero AND
-   * are not the default
+   * are not the default.  The actions are sorted by token, so that
+   * packed parsers can find them by bisection.
    * 
    * @param parserLine is the parser line with state transitions
    * @param defaultValue is the default value to exclude
@@ -263,23 +386,31 @@ public class TableGenerator extends AbstractPhase {
         actions.add(new Action(symbol, parserLine[i]));
       }
     }
+    Collections.sort(actions, new Comparator<Action>() {
+      public int compare(Action a, Action b) {
+        return a.getSymbol().getToken() - b.getSymbol().getToken();
+      }
+    });
     return actions;
   }
 
   /**
-   * Locate a state with identical actions.  This way they can share them
+   * Locate a state with identical actions.  This way they can share them.
+   * States are indexed by the contents of their actions, and the first
+   * state with a given list of actions is the one found.
    * @param stateNumber is the currentState.  Actions will be searched
-   * on states prior to this.
+   * on states prior to this, and if not found the current state is
+   * indexed with them.
    * 
    * @param actions is the list of actions to search
    * @return gthe stateNumber, or -1 if not found
    */
   private int findActions(int stateNumber, List<Action> actions) {
-    for (int state = 0; state < stateNumber; state++) {
-      if (I[state].getActions().equals(actions)) {
-        return state;
-      }
+    Integer state = actionsIndex.get(actions);
+    if (state != null) {
+      return state;
     }
+    actionsIndex.put(actions, stateNumber);
     return -1;
   }
 
@@ -315,20 +446,23 @@ public class TableGenerator extends AbstractPhase {
    * Compress a state's parser line, adding the actions to the packed
    * parser table.
    * 
-   * @param parserLine is the parsing table's line
-   * @param stateNumber is the current state
+   * @param row is the computed row of the state
    */
-  private void packState(int parserLine[], int stateNumber) {
+  private void packState(StateRow row) {
     if (environment.isPacked() == false) {
       return;
     }
 
-    int defaultAction = computeDefaultAction(parserLine, runtimeData.getTerminals().size());
-    List<Action> actions = packActions(parserLine, defaultAction);
+    int parserLine[] = row.parserLine;
+    int stateNumber = row.stateNumber;
+    int defaultAction = row.defaultAction;
+    List<Action> actions = row.actions;
     int existingState = findActions(stateNumber, actions);
     if (existingState >= 0) {
       actions = I[existingState].getActions();
       I[stateNumber].setPosition(I[existingState].getPosition());
+      numberOfSharedActionRows++;
+      numberOfSharedActions += actions.size();
       environment.report.printf("\nActions (same as state %d)\n------------------------------\n", existingState);
     } else {
       I[stateNumber].setPosition(actionNumber);
@@ -351,15 +485,7 @@ public class TableGenerator extends AbstractPhase {
     int terminals = runtimeData.getTerminals().size();
     for (int i = 0; i < runtimeData.getNonTerminals().size(); i++) {
       if (parserLine[terminals + i] != 0) {
-        NonTerminal symbol = null;
-        for (NonTerminal id : runtimeData.getNonTerminals()) {// = pNTtable;
-                                                              // id;
-                                                              // id=id.next) {
-          if (id.getId() == i + terminals) {
-            symbol = id;
-            break;
-          }
-        }
+        NonTerminal symbol = runtimeData.findNonTerminalById(i + terminals);
         if (symbol == null) {
           continue;
         }
@@ -430,12 +556,12 @@ public class TableGenerator extends AbstractPhase {
   }
   
   /**
-   * Given a parsing line, compute its possible error messages
+   * Given a parsing line, compute its possible error message
    * 
    * @param parserLine is the parsing table's line
-   * @param stateNumber is the current state
+   * @return the message, or null if the state has none
    */
-  private void computeErrorsForState(int parserLine[], int stateNumber) {
+  private String computeErrorMessage(int parserLine[]) {
     int tokenCount = 0;
     int nonTerminalCount = 0;
     int acceptCount = 0;
@@ -474,7 +600,6 @@ public class TableGenerator extends AbstractPhase {
     // consider the groups as a single reporting token
     tokenCount += errorGroups.size();
 
-    environment.report.printf("\nErrors\n-------\n");
     if (tokenCount == 1) {
       String message = "";
       if (theToken != null) {
@@ -483,16 +608,11 @@ public class TableGenerator extends AbstractPhase {
         // must be a group
         message = errorGroups.get(0).getDisplayName() + " expected";
       }
-      environment.report.println("    " + message);
-      I[stateNumber].setMessage(addErrorMessage(message));
+      return message;
     } else if (nonTerminalCount == 1 && theNonTerminal != null) {
-      String message = "Expecting " + theNonTerminal.getFullName();
-      environment.report.println("    " + message);
-      I[stateNumber].setMessage(addErrorMessage(message));
+      return "Expecting " + theNonTerminal.getFullName();
     } else if (reduceCount == 1 && theReducer != null) {
-      String message = theReducer.getFullName() + " expected";
-      environment.report.println("    " + message);
-      I[stateNumber].setMessage(addErrorMessage(message));
+      return theReducer.getFullName() + " expected";
     } else if (tokenCount != 0 && (tokenCount < nonTerminalCount || nonTerminalCount == 0)) {
       // includes groups, so go for them first
       StringBuilder messageBuffer = new StringBuilder();
@@ -525,8 +645,7 @@ public class TableGenerator extends AbstractPhase {
         }
       }
       messageBuffer.append(" expected");
-      environment.report.println("    " + messageBuffer.toString());
-      I[stateNumber].setMessage(addErrorMessage(messageBuffer.toString()));
+      return messageBuffer.toString();
     } else if (nonTerminalCount != 0) {
       StringBuilder messageBuffer = new StringBuilder("Expecting ");
       int count = 0;
@@ -552,8 +671,7 @@ public class TableGenerator extends AbstractPhase {
           }
         }
       }
-      environment.report.println("    " + messageBuffer.toString());
-      I[stateNumber].setMessage(addErrorMessage(messageBuffer.toString()));
+      return messageBuffer.toString();
     } else if (reduceCount != 0) {
       StringBuilder messageBuffer = new StringBuilder("");
       int count = 0;
@@ -593,15 +711,11 @@ public class TableGenerator extends AbstractPhase {
       } else {
         message = "One of " + message;
       }
-      environment.report.println("    " + message);
-      I[stateNumber].setMessage(addErrorMessage(message));
+      return message;
     } else if (acceptCount == 1) {
-      String message = "No more elements expected";
-      environment.report.println("    " + message);
-      I[stateNumber].setMessage(addErrorMessage(message));
-    } else {
-      I[stateNumber].setMessage(-1);
+      return "No more elements expected";
     }
+    return null;
   }
 
   /**
@@ -652,12 +766,13 @@ public class TableGenerator extends AbstractPhase {
    *     </ul>
    * </ol>
    * in cases when the shift/reduce conflict has not been solved, shift is taken, and a warning is printed.<p>
+   * @param report is the stream where the resolution is written
    * @param parserLine the parser line contents
    * @param tkn the token causing the conflict
    * @param rule the rule involved in the conflict
    * @return true if properly resolved
    */
-  private boolean resolveShiftReduceConflict(int parserLine[], Symbol tkn, Rule rule) {
+  private boolean resolveShiftReduceConflict(FormattingPrintStream report, int parserLine[], Symbol tkn, Rule rule) {
     Associativity association;
 
     if (tkn.getPrecedence() == 0 || rule.getPrecedence() == 0) {
@@ -679,11 +794,11 @@ public class TableGenerator extends AbstractPhase {
 
       case LEFT:
         parserLine[tkn.getId()] = -rule.getRulenum();
-        environment.report.printf("Conflict with %s resolved by Reduce\n", tkn.getName());
+        report.printf("Conflict with %s resolved by Reduce\n", tkn.getName());
         break;
 
       case RIGHT:
-        environment.report.printf("Conflict with %s resolved by Shift\n", tkn.getName());
+        report.printf("Conflict with %s resolved by Shift\n", tkn.getName());
         break;
     }
 
@@ -692,32 +807,34 @@ public class TableGenerator extends AbstractPhase {
 
   /**
    * Complete the reduces of a parser line in the given state
-   * @param parserLine the state's parser line
-   * @param stateNumber the state number
+   * @param report is the stream where the reduces are written
+   * @param row is the state's row, with its parser line
+   * @param dots are the dots of the state
    */
-  private void computeReduce(int parserLine[], int stateNumber) {
-    for (Dot dot : I[stateNumber].getAllDots()) {
+  private void computeReduce(FormattingPrintStream report, StateRow row, List<Dot> dots) {
+    int parserLine[] = row.parserLine;
+    for (Dot dot : dots) {
       if (dot.getItem() == null) { // I like dots at the end of rules
         if (dot.getRule().getLeftHand().equals(runtimeData.getRoot())) {
-          environment.report.println("ACCEPT BY " + -dot.getRule().getRulenum());
+          report.println("ACCEPT BY " + -dot.getRule().getRulenum());
           parserLine[0] = ACCEPT;
         } else {
           for (Symbol tkn : runtimeData.getTerminals()) {
             boolean containsToken = environment.algorithm.dotContains(dot, tkn.getId());
             if (containsToken) {
-              environment.report.printf("REDUCE BY RULE %d with %s\n", dot.getRule().getRulenum(), tkn.toString());
+              report.printf("REDUCE BY RULE %d with %s\n", dot.getRule().getRulenum(), tkn.toString());
               if (parserLine[tkn.getId()] > 0) {
                 // Conflict
-                if (!resolveShiftReduceConflict(parserLine, tkn, dot.getRule())) {
-                  environment.report.printf("Warning: Shift/Reduce conflict. With %s Shift to %d, Reduce by rule %d.  (Reduce by rule %d assumed)\n", tkn.getName(),
+                if (!resolveShiftReduceConflict(report, parserLine, tkn, dot.getRule())) {
+                  report.printf("Warning: Shift/Reduce conflict. With %s Shift to %d, Reduce by rule %d.  (Reduce by rule %d assumed)\n", tkn.getName(),
                       parserLine[tkn.getId()], dot.getRule().getRulenum(), dot.getRule().getRulenum());
-                  environment.error(dot.getRule().getLineNumber(),
-                      "Warning: Shift/Reduce conflict on state %d[%s Shift:%d Reduce:%d].", stateNumber, tkn.getName(),
+                  row.addConflict(dot.getRule().getLineNumber(),
+                      "Warning: Shift/Reduce conflict on state %d[%s Shift:%d Reduce:%d].", row.stateNumber, tkn.getName(),
                       parserLine[tkn.getId()], dot.getRule().getRulenum());
                 }
               } else if (parserLine[tkn.getId()] < 0) {
-                environment.error(dot.getRule().getLineNumber(),
-                    "Warning: Reduce/Reduce conflict on state %d[%s Reduce:%d Reduce:%d].", stateNumber, tkn.getName(),
+                row.addConflict(dot.getRule().getLineNumber(),
+                    "Warning: Reduce/Reduce conflict on state %d[%s Reduce:%d Reduce:%d].", row.stateNumber, tkn.getName(),
                     -parserLine[tkn.getId()], dot.getRule().getRulenum());
                 parserLine[tkn.getId()] = Math.max(-dot.getRule().getRulenum(), parserLine[tkn.getId()]);
               } else {
@@ -731,7 +848,10 @@ public class TableGenerator extends AbstractPhase {
   }
 
   /**
-   * Compact the go to table
+   * Compact the go to table.  The gotos of a non terminal start with
+   * an entry holding minus one minus the number of gotos, and the default
+   * destination.  The gotos that follow are sorted by origin, so that
+   * packed parsers can find them by bisection.
    */
   private void compactGotos() {
     int defaultValue;
@@ -745,7 +865,12 @@ public class TableGenerator extends AbstractPhase {
         numElems = id.removeGotos(defaultValue);
         numberOfGotos = numberOfGotos - size + numElems;
         id.setToken(position);
-        id.appendGoto(-1, defaultValue);
+        Collections.sort(id.getGotos(), new Comparator<GoTo>() {
+          public int compare(GoTo a, GoTo b) {
+            return a.getOrigin() - b.getOrigin();
+          }
+        });
+        id.prependGoto(-numElems - 1, defaultValue);
         numberOfGotos++;
         position += numElems + 1;
       }
@@ -760,12 +885,10 @@ public class TableGenerator extends AbstractPhase {
    */
   private List<Dot> computeStartingDots() {
     List<Dot>initialDots = new LinkedList<Dot>();
-    for (Rule rule : runtimeData.getRules()) {
-      if (rule.getLeftHand().equals(runtimeData.getRoot())) {
-        Dot dot = new Dot(I[0], rule, rule.getItem(0));
-        environment.algorithm.initializeDot(dot);
-        initialDots.add(dot);
-      }
+    for (Rule rule : runtimeData.getRulesWithLeftHand(runtimeData.getRoot().getId())) {
+      Dot dot = new Dot(I[0], rule, rule.getItem(0));
+      environment.algorithm.initializeDot(dot);
+      initialDots.add(dot);
     }
     return initialDots;
   }
@@ -787,6 +910,9 @@ public class TableGenerator extends AbstractPhase {
       m.setState(I[stateNumber]);
     }
     I[stateNumber].addAllKernelDots(dots);
+    indexState(stateNumber);
+    transitions.add(null);
+    reviewStates.set(stateNumber);
     closure(I[stateNumber]);
     if (environment.isDebug()) {
       System.out.println("Created new state " + stateNumber + ":\n" + I[stateNumber]);
@@ -801,12 +927,15 @@ public class TableGenerator extends AbstractPhase {
    * This operation may result in more than one dot.
    *   
    * @param state being reviewed
-   * @param dot the dot being checked
+   * @param dotIndex the index of the dot being checked
    * @return
    */
-  private List<Dot> moveDotToTheRight(State state, Dot dot) {
+  private List<Dot> moveDotToTheRight(State state, int dotIndex) {
+    List<Dot> dots = state.getAllDots();
+    Dot dot = dots.get(dotIndex);
     List<Dot> auxiliaryMarkers = new LinkedList<Dot>();
-    for (Dot lookaheadMarker = dot; lookaheadMarker != null; lookaheadMarker = lookaheadMarker.next()) {
+    for (int i = dotIndex; i < dots.size(); i++) {
+      Dot lookaheadMarker = dots.get(i);
       if (lookaheadMarker.getItem() != null &&
           lookaheadMarker.getItem().getSymbol().equals(dot.getItem().getSymbol())) {
         Dot auxiliary = new Dot(state, lookaheadMarker.getRule(), lookaheadMarker.nextItem());
@@ -817,8 +946,27 @@ public class TableGenerator extends AbstractPhase {
     return auxiliaryMarkers;
   }
 
+  /**
+   * Merge the lookaheads of the moved dots into a state, and have the state
+   * reviewed if they changed.
+   * 
+   * @param gotoState is the destination state
+   * @param auxiliaryMarkers are the dots moved to the right
+   * @return true if the state needs review
+   */
+  private boolean addLookaheadsToState(int gotoState, List<Dot> auxiliaryMarkers) {
+    if (environment.algorithm.addLookaheadsToState(I, gotoState, auxiliaryMarkers)) {
+      reviewStates.set(gotoState);
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Go dot by dot computing state transitions for each of the pointed symbols.
+   * The first time a state is reviewed its transitions are found, creating new
+   * states as needed.  Later reviews only carry the lookaheads over the known
+   * transitions.
    * 
    * @param parserLine is the current parser table's line
    * @param stateIndex is the current state
@@ -829,20 +977,50 @@ public class TableGenerator extends AbstractPhase {
     
     Arrays.fill(parserLine, 0);
 
-    for (Dot marker = I[stateIndex].getDot(0); marker != null; marker = marker.next()) {
+    List<Transition> stateTransitions = transitions.get(stateIndex);
+    if (stateTransitions != null) {
+      for (Transition transition : stateTransitions) {
+        Dot marker = I[stateIndex].getDot(transition.dotIndex);
+        List<Dot> auxiliaryMarkers = moveDotToTheRight(I[stateIndex], transition.dotIndex);
+        if (!environment.algorithm.isCompatible(I[transition.gotoState], auxiliaryMarkers)) {
+          // the lookaheads grew apart, go to a state that can take them
+          transition.gotoState = findStateWithDots(auxiliaryMarkers);
+          if (transition.gotoState > finalState) {
+            createNewState(++finalState, stateIndex, marker.getItem().getSymbol(), auxiliaryMarkers);
+          } else {
+            addLookaheadsToState(transition.gotoState, auxiliaryMarkers);
+          }
+          transitionsMoved = true;
+          affected = true;
+        } else if (addLookaheadsToState(transition.gotoState, auxiliaryMarkers)) {
+          affected = true;
+        }
+        if (environment.isDebug()) {
+          System.out.println("On state " + stateIndex + " with " + marker.getItem().getSymbol() + " go to " + transition.gotoState);
+        }
+        parserLine[marker.getItem().getSymbolId()] = transition.gotoState;
+      }
+      return affected;
+    }
+
+    stateTransitions = new ArrayList<Transition>();
+    transitions.set(stateIndex, stateTransitions);
+    List<Dot> dots = I[stateIndex].getAllDots();
+    for (int dotIndex = 0; dotIndex < dots.size(); dotIndex++) {
+      Dot marker = dots.get(dotIndex);
       if (marker.getItem() != null && parserLine[marker.getItem().getSymbolId()] == 0) {
-        List<Dot> auxiliaryMarkers = moveDotToTheRight(I[stateIndex], marker);
+        List<Dot> auxiliaryMarkers = moveDotToTheRight(I[stateIndex], dotIndex);
         int gotoState = findStateWithDots(auxiliaryMarkers);
         if (gotoState > finalState) { // meaning, this is a new state
           createNewState(++finalState, stateIndex, marker.getItem().getSymbol(), auxiliaryMarkers);
           gotoState = finalState;
         } else {
           // Merge lookaheads
-          if (environment.algorithm.addLookaheadsToState(I, gotoState, auxiliaryMarkers)) {
-            I[gotoState].setReview(true);
+          if (addLookaheadsToState(gotoState, auxiliaryMarkers)) {
             affected = true;
           }
         }
+        stateTransitions.add(new Transition(dotIndex, gotoState));
         if (environment.isDebug()) {
           System.out.println("On state " + stateIndex + " with " + marker.getItem().getSymbol() + " go to " + gotoState);
         }
@@ -853,12 +1031,118 @@ public class TableGenerator extends AbstractPhase {
   }
 
   /**
-   * finalize a state
-   * @param parserLine is the parsing table's current row
+   * Once transitions are moved to other states some states may not be
+   * reachable anymore.  Remove them, renumbering the remaining states
+   * in the order they had.
+   */
+  private void removeUnreachableStates() {
+    int parent[] = new int[finalState + 1];
+    BitSet reachable = new BitSet();
+    LinkedList<Integer> pending = new LinkedList<Integer>();
+    reachable.set(0);
+    pending.add(0);
+    while (!pending.isEmpty()) {
+      int stateNumber = pending.removeFirst();
+      for (Transition transition : transitions.get(stateNumber)) {
+        if (!reachable.get(transition.gotoState)) {
+          reachable.set(transition.gotoState);
+          parent[transition.gotoState] = stateNumber;
+          pending.add(transition.gotoState);
+        }
+      }
+    }
+    if (reachable.cardinality() == finalState + 1) {
+      return;
+    }
+
+    int newNumbers[] = new int[finalState + 1];
+    int count = 0;
+    for (int stateNumber = 0; stateNumber <= finalState; stateNumber++) {
+      newNumbers[stateNumber] = reachable.get(stateNumber) ? count++ : -1;
+    }
+    State states[] = new State[I.length];
+    List<List<Transition>> reachableTransitions = new ArrayList<List<Transition>>(count);
+    kernelIndex.clear();
+    for (int stateNumber = reachable.nextSetBit(0); stateNumber >= 0; stateNumber = reachable.nextSetBit(stateNumber + 1)) {
+      State state = I[stateNumber];
+      state.setId(newNumbers[stateNumber]);
+      if (state.getFrom() >= 0) {
+        int from = reachable.get(state.getFrom()) ? state.getFrom() : parent[stateNumber];
+        state.setFrom(newNumbers[from]);
+      }
+      for (Transition transition : transitions.get(stateNumber)) {
+        transition.gotoState = newNumbers[transition.gotoState];
+      }
+      states[state.getId()] = state;
+      reachableTransitions.add(transitions.get(stateNumber));
+    }
+    I = states;
+    transitions = reachableTransitions;
+    finalState = count - 1;
+    for (int stateNumber = 0; stateNumber <= finalState; stateNumber++) {
+      indexState(stateNumber);
+    }
+  }
+
+  /**
+   * Find the next state to review.  On the final phase all states are reviewed,
+   * otherwise only the ones whose lookaheads changed.
+   * 
+   * @param stateIndex is the first state to consider
+   * @param finalPhase is true when all states are reviewed
+   * @return the state, or -1 if there are no more states to review
+   */
+  private int nextStateToReview(int stateIndex, boolean finalPhase) {
+    if (!finalPhase) {
+      stateIndex = reviewStates.nextSetBit(stateIndex);
+    }
+    return stateIndex <= finalState ? stateIndex : -1;
+  }
+
+  /**
+   * Copy the dots of a state, so that the lookaheads they have now can be
+   * used after the state keeps changing.
+   * @param dots are the dots to copy
+   * @return the copies
+   */
+  private List<Dot> copyDots(List<Dot> dots) {
+    List<Dot> copies = new ArrayList<Dot>(dots.size());
+    for (Dot dot : dots) {
+      Dot copy = new Dot(dot.getState(), dot.getRule(), dot.getItem());
+      copy.addAllLookaheads(dot.getLookahead());
+      copies.add(copy);
+    }
+    return copies;
+  }
+
+  /**
+   * Check whether the dots of a state still have the lookaheads of their copies
+   * @param copies are the copied dots
+   * @param dots are the dots of the state
+   * @return true if no lookahead changed
+   */
+  private boolean sameLookaheads(List<Dot> copies, List<Dot> dots) {
+    for (int i = 0; i < dots.size(); i++) {
+      if (!copies.get(i).getLookahead().equals(dots.get(i).getLookahead())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compute the row of a state, once its transitions are known.  Only the
+   * given state, dots and report are used, so rows of different states
+   * can be computed at the same time.
+   * @param report is the stream where the shifts and reduces are written
    * @param stateNumber is the current state
+   * @param parserLine is the parsing table's row with the transitions
+   * @param dots are the dots of the state
+   * @return the row
    */
-  private void completeState(int[] parserLine, int stateNumber) {
-    environment.report.println("    ---------------------------------------------------------");
+  private StateRow computeRow(FormattingPrintStream report, int stateNumber, int parserLine[], List<Dot> dots) {
+    StateRow row = new StateRow(stateNumber, parserLine);
+    report.println("    ---------------------------------------------------------");
     for (int i = 0; i < parserLine.length; i++) {
       if (parserLine[i] > 0) {
         Symbol s = runtimeData.findTerminalById(i);
@@ -866,17 +1150,66 @@ public class TableGenerator extends AbstractPhase {
           s = runtimeData.findNonTerminalById(i);
         }
         if (s instanceof NonTerminal) {
-          environment.report.printf("GO TO STATE %d with symbol %s\n", parserLine[i], s.getName());
+          report.printf("GO TO STATE %d with symbol %s\n", parserLine[i], s.getName());
         } else {
-          environment.report.printf("SHIFT ON %s TO STATE %d\n", s.getName(), parserLine[i]);
+          report.printf("SHIFT ON %s TO STATE %d\n", s.getName(), parserLine[i]);
         }
       }
     }
-    computeReduce(parserLine, stateNumber);
+    computeReduce(report, row, dots);
+    if (environment.isPacked()) {
+      row.defaultAction = computeDefaultAction(parserLine, runtimeData.getTerminals().size());
+      row.actions = packActions(parserLine, row.defaultAction);
+    }
+    row.errorMessage = computeErrorMessage(parserLine);
+    return row;
+  }
+
+  /**
+   * Compute the row of a state on a thread of its own, writing its report
+   * to a buffer.
+   * @param executor is the pool of threads
+   * @param state is the current state
+   * @param parserLine is the parsing table's row with the transitions
+   * @param reportDots are the dots of the state to report
+   * @param dots are the dots of the state to compute reduces with
+   * @return the future row
+   */
+  private Future<StateRow> submitRow(ExecutorService executor, final State state, final int parserLine[],
+      final List<Dot> reportDots, final List<Dot> dots) {
+    return executor.submit(new Callable<StateRow>() {
+      public StateRow call() {
+        StringWriter writer = new StringWriter();
+        FormattingPrintStream report = new FormattingPrintStream(environment, writer);
+        printStateReport(report, state, reportDots);
+        StateRow row = computeRow(report, state.getId(), parserLine, dots);
+        report.flush();
+        row.report = writer.toString();
+        return row;
+      }
+    });
+  }
+
+  /**
+   * finalize a state, in state order
+   * @param row is the computed row of the state
+   */
+  private void completeState(StateRow row) {
+    int stateNumber = row.stateNumber;
+    if (row.report != null) {
+      environment.report.print(row.report);
+    }
+    for (Conflict conflict : row.conflicts) {
+      environment.error(conflict.lineNumber, "%s", conflict.message);
+    }
     I[stateNumber].setMessage(-1);
-    I[stateNumber].setRow(parserLine);
-    packState(parserLine, stateNumber);
-    computeErrorsForState(parserLine, stateNumber);
+    I[stateNumber].setRow(row.parserLine);
+    packState(row);
+    environment.report.printf("\nErrors\n-------\n");
+    if (row.errorMessage != null) {
+      environment.report.println("    " + row.errorMessage);
+      I[stateNumber].setMessage(addErrorMessage(row.errorMessage));
+    }
   }
 
   /**
@@ -890,18 +1223,26 @@ public class TableGenerator extends AbstractPhase {
     I = Arrays.copyOf(I, finalState + 1);
 
     runtimeData.setStates(I);
+    if (environment.isComb()) {
+      new CombPacker(runtimeData).pack(I);
+    } else if (!environment.isPacked()) {
+      runtimeData.setTokenHash(CombPacker.hashTokens(runtimeData));
+    }
     runtimeData.setNumberOfActions(actionNumber);
+    runtimeData.setNumberOfSharedActionRows(numberOfSharedActionRows);
+    runtimeData.setNumberOfSharedActions(numberOfSharedActions);
     runtimeData.setNumberOfGoTos(numberOfGotos);
     runtimeData.setErrorMessages(errorMessages);
   }
   /**
-   * Generates the parsing table by computing the states of the grammar.
+   * Compute the states of the grammar, phase after phase, until all are
+   * resolved and completed.  With an executor, the rows of the final phase
+   * are computed by its threads, and completed in state order.
+   * @param parserLine is the parsing table's row to work with
+   * @param executor is the pool of threads, or null
    */
-  public void execute() {
-    int parserLine[] = new int[runtimeData.getTerminals().size() + runtimeData.getNonTerminals().size()];
-    List<Dot> initialDots = computeStartingDots();
-    createNewState(0, -1, null, initialDots);
-
+  private void computeStates(int parserLine[], ExecutorService executor) {
+    List<Future<StateRow>> rows = new ArrayList<Future<StateRow>>();
     // make sure that for multi-pass algorithms we do not initially print.
     boolean finalPhase = environment.algorithm.isMultiPass() == false;
     boolean completed = false;
@@ -912,16 +1253,18 @@ public class TableGenerator extends AbstractPhase {
         System.out.println("\n\nStarting a new phase with " + finalPhase + " and " + finalState + " states");
       }
       int affected = 0;
-      for (int stateIndex = 0;stateIndex <= finalState; stateIndex++) {
-        //skip state if not to be reviewed (unless we want to print it)
-        if (I[stateIndex].isReview() == false && finalPhase == false) {
-          continue;
-        }
+      for (int stateIndex = nextStateToReview(0, finalPhase); stateIndex >= 0;
+          stateIndex = nextStateToReview(stateIndex + 1, finalPhase)) {
         if (environment.isVerbose()) {
           System.out.printf("Reviewing state %d of %d\n", stateIndex, finalState);
         }
+        List<Dot> reportDots = null;
         if (finalPhase) {
-          printStateReport(stateIndex);
+          if (executor != null) {
+            reportDots = copyDots(I[stateIndex].getAllDots());
+          } else {
+            printStateReport(environment.report, I[stateIndex], I[stateIndex].getAllDots());
+          }
         }
 
         if (computeStateTransitions(parserLine, stateIndex)) {
@@ -929,17 +1272,57 @@ public class TableGenerator extends AbstractPhase {
         }
         
         if (finalPhase) {
-          completeState(parserLine, stateIndex);
+          if (executor != null) {
+            List<Dot> dots = I[stateIndex].getAllDots();
+            dots = sameLookaheads(reportDots, dots) ? reportDots : copyDots(dots);
+            rows.add(submitRow(executor, I[stateIndex], parserLine.clone(), reportDots, dots));
+          } else {
+            completeState(computeRow(environment.report, stateIndex, parserLine, I[stateIndex].getAllDots()));
+          }
         }
-        I[stateIndex].setReview(false);
+        reviewStates.clear(stateIndex);
       }
       
       if (finalPhase) {
         completed = true;
       } else if (affected == 0) {
+        if (transitionsMoved) {
+          removeUnreachableStates();
+        }
         finalPhase = true;
       }
     }
+
+    try {
+      for (Future<StateRow> row : rows) {
+        completeState(row.get());
+      }
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Table generation was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Table generation failed", e.getCause());
+    }
+  }
+
+  /**
+   * Generates the parsing table by computing the states of the grammar.
+   */
+  public void execute() {
+    int parserLine[] = new int[runtimeData.getTerminals().size() + runtimeData.getNonTerminals().size()];
+    List<Dot> initialDots = computeStartingDots();
+    createNewState(0, -1, null, initialDots);
+
+    ExecutorService executor = null;
+    if (environment.getThreads() > 1) {
+      executor = Executors.newFixedThreadPool(environment.getThreads());
+    }
+    try {
+      computeStates(parserLine, executor);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
     completeGeneration();
   }
 }
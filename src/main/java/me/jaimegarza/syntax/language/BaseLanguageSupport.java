@@ -29,15 +29,21 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package me.jaimegarza.syntax.language;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import me.jaimegarza.syntax.EmbeddedCodeProcessor;
 import me.jaimegarza.syntax.Lexer;
 import me.jaimegarza.syntax.code.Fragments;
 import me.jaimegarza.syntax.definition.State;
 import me.jaimegarza.syntax.definition.Symbol;
+import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.definition.Type;
 import me.jaimegarza.syntax.env.Environment;
 import me.jaimegarza.syntax.env.RuntimeData;
+import me.jaimegarza.syntax.regex.CharacterClass;
 import me.jaimegarza.syntax.util.FormattingPrintStream;
+import me.jaimegarza.syntax.util.PerfectHash;
 
 /**
  * Class that contains routines common to all language drivers
@@ -47,6 +53,13 @@ import me.jaimegarza.syntax.util.FormattingPrintStream;
  */
 public abstract class BaseLanguageSupport implements LanguageSupport {
 
+  /** depth of the stacks when they cannot grow */
+  protected static final int FIXED_STACK_DEPTH = 5000;
+  /** initial depth of the stacks when they double on demand */
+  protected static final int GROWABLE_STACK_DEPTH = 64;
+  /** character classes that fit the masks of the character class table */
+  protected static final int MAX_CHARACTER_CLASSES = 16;
+
   protected Environment environment;
   protected RuntimeData runtime;
   
@@ -247,11 +260,135 @@ public abstract class BaseLanguageSupport implements LanguageSupport {
       lexer.getCharacter();
       output.printFragment(Fragments.LEXICAL_VALUE);
       return true;
+    } else if (runtime.currentCharacter == '[') {
+      // $[...] is left to lexerCharacterClass
+      return false;
     }
     output.print('$');
     return false;
   }
 
+  /**
+   * Emit the test of the current character against a character class,
+   * $[...].  Each distinct class takes one bit of the masks of the
+   * character class table, which is printed with the lexer.
+   * @param output is the stream of the lexer code
+   * @param lexer is the lexer that reads the class
+   * @return true if the class was valid
+   */
+  protected boolean lexerCharacterClass(FormattingPrintStream output, Lexer lexer) {
+    StringBuilder text = new StringBuilder();
+    text.append(runtime.currentCharacter);
+    boolean end = false;
+    int nested = 0;
+    while (!end) {
+      char c = lexer.getCharacter();
+      if (c == '\0' || c == '\n') {
+        environment.error(-1, "Unfinished character class %s.", text);
+        return false;
+      }
+      text.append(c);
+      if (c == '\\') {
+        c = lexer.getCharacter();
+        if (c == '\0' || c == '\n') {
+          environment.error(-1, "Unfinished character class %s.", text);
+          return false;
+        }
+        text.append(c);
+      } else if (c == '[') {
+        nested++;
+      } else if (c == ']') {
+        if (nested > 0) {
+          nested--;
+        } else {
+          end = true;
+        }
+      }
+    }
+    lexer.getCharacter();
+
+    int index = findCharacterClass(text.toString());
+    if (index < 0) {
+      return false;
+    }
+    output.printFragment(Fragments.CHARACTER_CLASS, String.valueOf(1 << index));
+    return true;
+  }
+
+  /**
+   * Find a character class, adding it if it is new
+   * @param text is the text of the class
+   * @return the number of the class, or -1 on error
+   */
+  private int findCharacterClass(String text) {
+    List<CharacterClass> classes = runtime.getCharacterClasses();
+    for (int i = 0; i < classes.size(); i++) {
+      if (classes.get(i).getText().equals(text)) {
+        return i;
+      }
+    }
+    if (classes.size() == MAX_CHARACTER_CLASSES) {
+      environment.error(-1, "Too many character classes, at most %d can be used.", MAX_CHARACTER_CLASSES);
+      return -1;
+    }
+    try {
+      classes.add(new CharacterClass(text, getLastCharacter()));
+    } catch (IllegalArgumentException e) {
+      environment.error(-1, "%s.", e.getMessage());
+      return -1;
+    }
+    return classes.size() - 1;
+  }
+
+  /**
+   * The highest character code that the generated lexers read, which
+   * bounds the table of character classes
+   * @return 255, for eight bit characters
+   */
+  protected int getLastCharacter() {
+    return 0xff;
+  }
+
+  /**
+   * Compute a perfect hash of the reserved words, which are the tokens
+   * with a name usable as an identifier.  Case is folded as the generated
+   * lexers read characters.
+   * @param ignoreCase is true to hash the words in any case
+   * @return the hash, with the indexes of the words in the reserved words
+   */
+  protected PerfectHash hashReservedWords(boolean ignoreCase) {
+    List<String> words = new ArrayList<String>();
+    for (Terminal id : runtime.getTerminals()) {
+      if (!id.getVariable().equals("_")) {
+        words.add(id.getVariable());
+      }
+    }
+    return new PerfectHash(words.toArray(new String[words.size()]), ignoreCase, getLastCharacter() > 0xff);
+  }
+
+  /**
+   * Map the slots of a perfect hash of the reserved words to the token
+   * definitions, as they are printed with all the terminals.
+   * @param hash is the hash of the reserved words
+   * @return the index of the token definition of each slot
+   */
+  protected int[] getReservedDefinitions(PerfectHash hash) {
+    List<Integer> definitions = new ArrayList<Integer>();
+    int index = 0;
+    for (Terminal id : runtime.getTerminals()) {
+      if (!id.getVariable().equals("_")) {
+        definitions.add(index);
+      }
+      index++;
+    }
+    int slots[] = hash.getSlots();
+    int values[] = new int[slots.length];
+    for (int i = 0; i < slots.length; i++) {
+      values[i] = definitions.get(slots[i]);
+    }
+    return values;
+  }
+
   protected boolean lexerComment(FormattingPrintStream output, Lexer lexer, char characterToFind) {
     output.print(runtime.currentCharacter);
     lexer.getCharacter();
@@ -336,9 +473,19 @@ public abstract class BaseLanguageSupport implements LanguageSupport {
     while (!end) {
       switch (runtime.currentCharacter) {
         case '$':
+          if (startingString) {
+            indent(output, environment.getIndent() - (this instanceof C?1:0));
+            startingString = false;
+          }
           if (lexerDollar(output, lexer)) {
             continue;
           }
+          if (runtime.currentCharacter == '[') {
+            if (!lexerCharacterClass(output, lexer)) {
+              return false;
+            }
+            continue;
+          }
           break;
   
         case ';': /* finish of action */
@@ -415,6 +562,77 @@ public abstract class BaseLanguageSupport implements LanguageSupport {
     return error.replaceAll("\\\"", "\\\\\"");
   }
 
+  /**
+   * Print the values of a table separated by commas, starting a new line
+   * when the margin is reached.  Integer.MAX_VALUE is printed as ACCEPT.
+   * @param out is the stream where the values are printed
+   * @param indentation is the indentation of each line
+   * @param values are the values to print
+   */
+  protected void printTableValues(FormattingPrintStream out, int indentation, int values[]) {
+    String lineStart = indent(indentation);
+    int column = lineStart.length();
+    out.print(lineStart);
+    for (int i = 0; i < values.length; i++) {
+      String value = values[i] == Integer.MAX_VALUE ? "ACCEPT" : String.format("%6d", values[i]);
+      if (i < values.length - 1) {
+        value += ",";
+      }
+      if (column + value.length() > environment.getMargin() && column > lineStart.length()) {
+        out.print("\n");
+        out.print(lineStart);
+        column = lineStart.length();
+      }
+      out.print(value);
+      column += value.length();
+    }
+    out.print("\n");
+  }
+
+  /**
+   * The initial depth of the parser stacks.  Fixed stacks are allocated
+   * large once, growable stacks start small and are doubled on demand.
+   * @return the depth to emit as STACK_DEPTH
+   */
+  protected int getStackDepth() {
+    return environment.isGrowable() ? GROWABLE_STACK_DEPTH : FIXED_STACK_DEPTH;
+  }
+
+  /**
+   * The value returned for a token matched by a regular expression.  The
+   * lexer is emitted before the tokens without a value are numbered, so
+   * those are returned by their constant.
+   * @param terminal is the token
+   * @return the value or the constant of the token
+   */
+  protected String getRegexTokenValue(Terminal terminal) {
+    if (terminal.getToken() >= 0) {
+      return String.valueOf(terminal.getToken());
+    }
+    if (!terminal.isIdentifier()) {
+      environment.error(-1, "Token \'%s\' of a regular expression needs a value or a name usable as a constant.", terminal.getName());
+    }
+    return terminal.getName();
+  }
+
+  /**
+   * Print the action of a regular expression token, nested deeper
+   * than the lexer code it was generated for
+   * @param output is the lexer mode stream
+   * @param action is the generated action
+   * @param levels is the number of additional indentation levels
+   */
+  protected void printRegexAction(FormattingPrintStream output, String action, int levels) {
+    String lineStart = indent(levels);
+    for (String line : action.split("\n")) {
+      if (line.trim().length() > 0) {
+        output.print(lineStart);
+        output.print(line);
+      }
+      output.print('\n');
+    }
+  }
+
   protected String getShortSymbolName(Symbol t) {
     String name = t.getFullName();
     if (name.startsWith("\"") || name.startsWith("\'")) {
@@ -29,15 +29,23 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package me.jaimegarza.syntax.language;
 
+import java.util.List;
+
 import me.jaimegarza.syntax.Lexer;
+import me.jaimegarza.syntax.code.Fragments;
 import me.jaimegarza.syntax.definition.Action;
 import me.jaimegarza.syntax.definition.Driver;
 import me.jaimegarza.syntax.definition.ErrorToken;
 import me.jaimegarza.syntax.definition.GoTo;
 import me.jaimegarza.syntax.definition.NonTerminal;
+import me.jaimegarza.syntax.definition.RegexToken;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.State;
 import me.jaimegarza.syntax.definition.Terminal;
+import me.jaimegarza.syntax.regex.CharacterClassTable;
+import me.jaimegarza.syntax.regex.Dfa;
+import me.jaimegarza.syntax.util.FormattingPrintStream;
+import me.jaimegarza.syntax.util.PerfectHash;
 
 
 /**
@@ -128,6 +136,9 @@ public class C extends BaseLanguageSupport {
     }
     if (environment.isPacked()) {
       environment.include.println("#define PACKED_TABLES");
+      if (environment.isComb()) {
+        environment.include.println("#define COMB_TABLES");
+      }
     } else {
       environment.include.println("#define MATRIX_TABLES");
     }
@@ -142,9 +153,16 @@ public class C extends BaseLanguageSupport {
                       .printf("extern char   StxChar;\n")
                       .printf("extern TSTACK StxValue;\n")
                       .printf("char          StxNextChar();\n");
+    if (runtime.getLexerDfa() != null) {
+      printRegexScanner(runtime.getLexerDfa());
+    }
+    if (runtime.getCharacterClasses().size() > 0) {
+      printCharacterClassTable(new CharacterClassTable(runtime.getCharacterClasses(), getLastCharacter()));
+    }
     environment.output.printf("\n")
-                      .printf("int StxLexerMode = DEFAULT_LEXER_MODE;\n\n")
-                      .printf("unsigned long int StxLexer()\n")
+                      .printf("int StxLexerMode = DEFAULT_LEXER_MODE;\n\n");
+    printLexerReadMacro(true);
+    environment.output.printf("unsigned long int StxLexer()\n")
                       .printf("{\n");
     if (environment.lexerModes.size() > 1) {
       indent(environment.output, environment.getIndent()-1);
@@ -156,8 +174,9 @@ public class C extends BaseLanguageSupport {
 
   @Override
   public void generateLexerModeHeader(String lexerMode) {
-    environment.output.printf("\n")
-                      .printf("unsigned long int StxLexer_" + computeModeName(lexerMode) + "()\n")
+    environment.output.printf("\n");
+    printLexerReadMacro(true);
+    environment.output.printf("unsigned long int StxLexer_" + computeModeName(lexerMode) + "()\n")
                       .printf("{\n");
   }
     
@@ -167,6 +186,7 @@ public class C extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("return 0; /* UNKNOWN */\n");
     environment.output.printf("}/* End of StxLexer_" + computeModeName(lexerMode) + " */\n");
+    printLexerReadMacro(false);
   }
   
   @Override
@@ -179,6 +199,159 @@ public class C extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("return 0; /* UNKNOWN */\n");
     environment.output.printf("}/* End of StxLexer */\n");
+    printLexerReadMacro(false);
+  }
+
+  /**
+   * Print the tables of the automaton of the regular expressions, and the
+   * routine that runs it from the current character until no expression
+   * can go on.  The characters read past the longest match are given back
+   * with StxUngetChar, and the lexer reads them again through
+   * StxLexerNextChar.
+   */
+  private void printRegexScanner(Dfa dfa) {
+    environment.include.printf("#define LEXER_CLASSES %d\n", dfa.getNumberOfClasses());
+    // the pushback grows with realloc
+    environment.output.printf("\n#include <stdlib.h>\n");
+    environment.output.printf("\n/* Automaton of the regular expressions */\n");
+    printRegexTable("StxLexerClassStarts", dfa.getClassStarts());
+    printRegexTable("StxLexerModeStarts", dfa.getModeStarts());
+    printRegexTable("StxLexerTransitions", dfa.getTransitions());
+    printRegexTable("StxLexerAccepts", dfa.getAccepts());
+    environment.output.printf(
+      "char *StxLexerPushback = NULL;  /* Characters given back, the next one last */\n" +
+      "int   StxLexerPushbackSize = 0;\n" +
+      "int   StxLexerPushbackCount = 0;\n" +
+      "char *StxLexerRead = NULL;      /* Characters read by the automaton       */\n" +
+      "int   StxLexerReadSize = 0;\n" +
+      "\n" +
+      "/*\n" +
+      " * Give back a character, to be read again before the rest of the input\n" +
+      " */\n" +
+      "void StxUngetChar(char c)\n" +
+      "{\n" +
+      indent(1) + "if (StxLexerPushbackCount == StxLexerPushbackSize) {\n" +
+      indent(2) + "StxLexerPushbackSize = StxLexerPushbackSize == 0 ? 16 : StxLexerPushbackSize * 2;\n" +
+      indent(2) + "StxLexerPushback = (char *) realloc(StxLexerPushback, StxLexerPushbackSize);\n" +
+      indent(1) + "}\n" +
+      indent(1) + "StxLexerPushback[StxLexerPushbackCount++] = c;\n" +
+      "}\n" +
+      "\n" +
+      "/*\n" +
+      " * Get the next character of the lexer, the ones given back first\n" +
+      " */\n" +
+      "char StxLexerNextChar()\n" +
+      "{\n" +
+      indent(1) + "if (StxLexerPushbackCount > 0) {\n" +
+      indent(2) + "return StxLexerPushback[--StxLexerPushbackCount];\n" +
+      indent(1) + "}\n" +
+      indent(1) + "return StxNextChar();\n" +
+      "}\n" +
+      "\n" +
+      "/*\n" +
+      " * Match the longest input accepted by the regular expressions of a mode\n" +
+      " * and return the number of the expression matched, or 0.  What was read\n" +
+      " * past the match, or all of it if nothing matched, is given back\n" +
+      " */\n" +
+      "int StxMatchRegex(int mode)\n" +
+      "{\n" +
+      indent(1) + "int state = StxLexerModeStarts[mode];\n" +
+      indent(1) + "int match = 0;\n" +
+      indent(1) + "int matchLength = 0;\n" +
+      indent(1) + "int length = 0;\n" +
+      indent(1) + "while (1) {\n" +
+      indent(2) + "int next = -1;\n" +
+      indent(2) + "int c = (unsigned char) StxChar;\n" +
+      indent(2) + "if (c != 0) {\n" +
+      indent(3) + "int low = 0;\n" +
+      indent(3) + "int high = LEXER_CLASSES - 1;\n" +
+      indent(3) + "while (low < high) {\n" +
+      indent(4) + "int middle = (low + high + 1) >> 1;\n" +
+      indent(4) + "if (StxLexerClassStarts[middle] <= c) {\n" +
+      indent(5) + "low = middle;\n" +
+      indent(4) + "} else {\n" +
+      indent(5) + "high = middle - 1;\n" +
+      indent(4) + "}\n" +
+      indent(3) + "}\n" +
+      indent(3) + "next = StxLexerTransitions[state * LEXER_CLASSES + low];\n" +
+      indent(2) + "}\n" +
+      indent(2) + "if (next < 0) {\n" +
+      indent(3) + "if (length > matchLength) {\n" +
+      indent(4) + "StxUngetChar(StxChar);\n" +
+      indent(4) + "while (--length > matchLength) {\n" +
+      indent(5) + "StxUngetChar(StxLexerRead[length]);\n" +
+      indent(4) + "}\n" +
+      indent(4) + "StxChar = StxLexerRead[matchLength];\n" +
+      indent(3) + "}\n" +
+      indent(3) + "return match;\n" +
+      indent(2) + "}\n" +
+      indent(2) + "if (length == StxLexerReadSize) {\n" +
+      indent(3) + "StxLexerReadSize = StxLexerReadSize == 0 ? 16 : StxLexerReadSize * 2;\n" +
+      indent(3) + "StxLexerRead = (char *) realloc(StxLexerRead, StxLexerReadSize);\n" +
+      indent(2) + "}\n" +
+      indent(2) + "StxLexerRead[length++] = StxChar;\n" +
+      indent(2) + "state = next;\n" +
+      indent(2) + "StxChar = StxLexerNextChar();\n" +
+      indent(2) + "if (StxLexerAccepts[state] != 0) {\n" +
+      indent(3) + "match = StxLexerAccepts[state];\n" +
+      indent(3) + "matchLength = length;\n" +
+      indent(2) + "}\n" +
+      indent(1) + "}\n" +
+      "}\n");
+  }
+
+  /**
+   * The lexer functions read through StxLexerNextChar when there are
+   * regular expressions, so that they see the characters given back
+   * @param start is true before the function and false after it
+   */
+  private void printLexerReadMacro(boolean start) {
+    if (runtime.getLexerDfa() == null) {
+      return;
+    }
+    if (start) {
+      environment.output.printf("#define StxNextChar StxLexerNextChar\n");
+    } else {
+      environment.output.printf("#undef StxNextChar\n");
+    }
+  }
+
+  /**
+   * Print the table of the character classes tested with $[...]
+   */
+  private void printCharacterClassTable(CharacterClassTable table) {
+    environment.output.printf("\n/* Character classes of the lexer */\n");
+    environment.output.printf("unsigned short StxCharClassMasks[%d] = {\n", table.getMasks().length);
+    printTableValues(environment.output, 1, table.getMasks());
+    environment.output.printf("};\n\n");
+  }
+
+  private void printRegexTable(String name, int values[]) {
+    environment.output.printf("int %s[%d] = {\n", name, values.length);
+    printTableValues(environment.output, 1, values);
+    environment.output.printf("};\n\n");
+  }
+
+  @Override
+  public void generateRegexDispatch(FormattingPrintStream output, String lexerMode, int modeIndex, List<RegexToken> tokens) {
+    indent(output, environment.getIndent() - 1);
+    output.printf("switch (StxMatchRegex(%d)) {\n", modeIndex);
+    int expression = 1;
+    for (RegexToken token : tokens) {
+      if (token.getLexerMode().equals(lexerMode)) {
+        indent(output, environment.getIndent());
+        output.printf("case %d: /* %s */\n", expression, token.getTerminal().getName());
+        if (token.getAction() != null) {
+          printRegexAction(output, token.getAction(), 2);
+        }
+        indent(output, environment.getIndent() + 1);
+        output.printFragment(Fragments.RETURN_VALUE, getRegexTokenValue(token.getTerminal()));
+        output.printf(";\n");
+      }
+      expression++;
+    }
+    indent(output, environment.getIndent() - 1);
+    output.printf("}\n");
   }
 
   @Override
@@ -195,16 +368,38 @@ public class C extends BaseLanguageSupport {
     environment.output.println();
   }
 
+  /**
+   * Print the depth of the stacks.  Growable stacks need realloc
+   */
+  private void printStackDepth() {
+    environment.output.printf("#define STACK_DEPTH %d\n", getStackDepth());
+    if (environment.isGrowable()) {
+      environment.output.printf("#define STACK_GROWS\n")
+                        .printf("#include <stdlib.h>\n");
+    }
+  }
+
+  /**
+   * Print the value stack, allocated by the parser when it grows
+   */
+  private void printValueStack() {
+    if (environment.isGrowable()) {
+      environment.output.printf("TSTACK *StxStack = NULL;\n");
+    } else {
+      environment.output.printf("TSTACK StxStack[STACK_DEPTH];\n");
+    }
+    environment.output.printf("int pStxStack;\n");
+  }
+
   @Override
   public void generateCodeGeneratorHeader() {
+    environment.output.printf("\n");
+    printStackDepth();
     environment.output.printf("\n")
-                      .printf("#define STACK_DEPTH 5000\n")
-                      .printf("\n")
                       .printf("/* Code Generator */\n")
-                      .printf("\n")
-                      .printf("TSTACK StxStack[STACK_DEPTH];\n")
-                      .printf("int pStxStack;\n")
-                      .printf("\n")
+                      .printf("\n");
+    printValueStack();
+    environment.output.printf("\n")
                       .printf("int StxCode(int rule)\n")
                       .printf("{\n");
     indent(environment.output, environment.getIndent() - 1);
@@ -224,13 +419,12 @@ public class C extends BaseLanguageSupport {
   @Override
   public void generateVoidCodeGenerator() {
     environment.output.printf("\n")
-      .printf("\n")
-      .printf("#define STACK_DEPTH 5000\n")
-      .printf("\n")
-      .printf("\n")
-      .printf("TSTACK StxStack[STACK_DEPTH];\n")
-      .printf("int pStxStack;\n")
-      .printf("\n")
+      .printf("\n");
+    printStackDepth();
+    environment.output.printf("\n")
+      .printf("\n");
+    printValueStack();
+    environment.output.printf("\n")
       .printf("int StxCode(int rule)\n")
       .printf("{\n");
     indent(environment.output, environment.getIndent() - 1);
@@ -341,6 +535,94 @@ public class C extends BaseLanguageSupport {
       environment.output.println();
     }
     environment.output.printf("};\n");
+    printReservedHash();
+  }
+
+  /**
+   * Print the perfect hashes of the reserved words to their token
+   * definitions, one by the exact word and one ignoring case, with the
+   * routines that probe them.  Case is folded for ASCII letters only, and
+   * the generated hash must compute the same values as {@link PerfectHash}.
+   */
+  private void printReservedHash() {
+    PerfectHash exact = hashReservedWords(false);
+    PerfectHash anyCase = hashReservedWords(true);
+
+    environment.include.printf("/* Reserved words */\n");
+    environment.include.printf("#define RESERVED_WORDS %d\n", exact.getSlots().length);
+    environment.include.printf("#define RESERVED_WORDS_IGNORE_CASE %d\n", anyCase.getSlots().length);
+    environment.include.printf("int StxFindReservedWord(char *word);\n");
+    environment.include.printf("int StxFindReservedWordIgnoreCase(char *word);\n\n");
+
+    environment.output.printf("\n/* Perfect hash of the reserved words to their token definitions */\n");
+    printReservedTable("StxReservedSeeds", "RESERVED_WORDS", exact.getSeeds());
+    printReservedTable("StxReservedSlots", "RESERVED_WORDS", getReservedDefinitions(exact));
+    printReservedTable("StxReservedSeedsIgnoreCase", "RESERVED_WORDS_IGNORE_CASE", anyCase.getSeeds());
+    printReservedTable("StxReservedSlotsIgnoreCase", "RESERVED_WORDS_IGNORE_CASE", getReservedDefinitions(anyCase));
+    environment.output.printf(
+      "\n" +
+      "/* Fold an ASCII letter to lower case */\n" +
+      "static unsigned int StxFoldCase(unsigned int c, int ignoreCase)\n" +
+      "{\n" +
+      "    if (ignoreCase && c >= 'A' && c <= 'Z') {\n" +
+      "        return c + 'a' - 'A';\n" +
+      "    }\n" +
+      "    return c;\n" +
+      "}\n" +
+      "\n" +
+      "static int StxReservedHash(char *word, unsigned int basis, int ignoreCase)\n" +
+      "{\n" +
+      "    unsigned int hash = basis;\n" +
+      "    for (; *word; word++) {\n" +
+      "        hash = ((hash ^ StxFoldCase((unsigned char) *word, ignoreCase)) * %du) & 0xffffffff;\n" +
+      "    }\n" +
+      "    return (int) ((hash ^ (hash >> 16)) & 0x7fffffff);\n" +
+      "}\n" +
+      "\n" +
+      "/* Find the token of a reserved word by its perfect hash, or -1 */\n" +
+      "static int StxFindReservedToken(char *word, int *seeds, int *slots, int size, int ignoreCase)\n" +
+      "{\n" +
+      "    int seed;\n" +
+      "    int i;\n" +
+      "    char *name;\n" +
+      "\n" +
+      "    if (size == 0) {\n" +
+      "        return -1;\n" +
+      "    }\n" +
+      "    seed = seeds[StxReservedHash(word, %du, ignoreCase) %% size];\n" +
+      "    i = slots[seed < 0 ? -seed - 1 : StxReservedHash(word, (unsigned int) seed, ignoreCase) %% size];\n" +
+      "    for (name = StxTokenDefs[i].name; *name && *word; name++, word++) {\n" +
+      "        if (StxFoldCase((unsigned char) *name, ignoreCase) != StxFoldCase((unsigned char) *word, ignoreCase)) {\n" +
+      "            return -1;\n" +
+      "        }\n" +
+      "    }\n" +
+      "    return *name == *word ? StxTokenDefs[i].token : -1;\n" +
+      "}\n" +
+      "\n" +
+      "int StxFindReservedWord(char *word)\n" +
+      "{\n" +
+      "    return StxFindReservedToken(word, StxReservedSeeds, StxReservedSlots, RESERVED_WORDS, 0);\n" +
+      "}\n" +
+      "\n" +
+      "int StxFindReservedWordIgnoreCase(char *word)\n" +
+      "{\n" +
+      "    return StxFindReservedToken(word, StxReservedSeedsIgnoreCase, StxReservedSlotsIgnoreCase, RESERVED_WORDS_IGNORE_CASE, 1);\n" +
+      "}\n",
+      PerfectHash.PRIME, PerfectHash.BASIS & 0xffffffffL);
+  }
+
+  /**
+   * Print one table of a perfect hash.  C does not allow empty arrays, so an
+   * empty hash still gets one element, that the routines never read.
+   */
+  private void printReservedTable(String name, String size, int values[]) {
+    if (values.length == 0) {
+      environment.output.printf("int %s[1] = {0};\n", name);
+      return;
+    }
+    environment.output.printf("int %s[%s] = {\n", name, size);
+    printTableValues(environment.output, 1, values);
+    environment.output.printf("};\n");
   }
 
   @Override
@@ -486,6 +768,23 @@ public class C extends BaseLanguageSupport {
     }
   }
 
+  @Override
+  public void printCombTables() {
+    environment.include.printf("#define COMB_SIZE %d\n", runtime.getCombNext().length);
+    environment.include.printf("#define TOKEN_HASH_SIZE %d\n\n", runtime.getTokenHash().length);
+    environment.output.printf("\n/* Comb vectors of the action table */\n");
+    environment.output.printf("int StxActionCheck[COMB_SIZE] = {\n");
+    printTableValues(environment.output, 1, runtime.getCombCheck());
+    environment.output.printf("};\n\n");
+    environment.output.printf("int StxActionNext[COMB_SIZE] = {\n");
+    printTableValues(environment.output, 1, runtime.getCombNext());
+    environment.output.printf("};\n\n");
+    environment.output.printf("/* Hash of the tokens to their columns */\n");
+    environment.output.printf("int StxTokenHash[TOKEN_HASH_SIZE] = {\n");
+    printTableValues(environment.output, 1, runtime.getTokenHash());
+    environment.output.printf("};\n");
+  }
+
   @Override
   public void printGoToTableHeader() {
     environment.include.printf(
@@ -28,14 +28,26 @@
 */
 package me.jaimegarza.syntax.language;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
 import me.jaimegarza.syntax.Lexer;
+import me.jaimegarza.syntax.code.Fragments;
 import me.jaimegarza.syntax.definition.Action;
 import me.jaimegarza.syntax.definition.ErrorToken;
 import me.jaimegarza.syntax.definition.GoTo;
 import me.jaimegarza.syntax.definition.NonTerminal;
+import me.jaimegarza.syntax.definition.RegexToken;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.State;
 import me.jaimegarza.syntax.definition.Terminal;
+import me.jaimegarza.syntax.regex.CharacterClassTable;
+import me.jaimegarza.syntax.regex.Dfa;
+import me.jaimegarza.syntax.util.FormattingPrintStream;
+import me.jaimegarza.syntax.util.PerfectHash;
 
 /**
  * Routines for supporting the java language
@@ -45,6 +57,52 @@ import me.jaimegarza.syntax.definition.Terminal;
  */
 public class Java extends BaseLanguageSupport {
 
+  /**
+   * With --compact, the values of the table being printed are collected
+   * here and emitted as an encoded string after its last element.
+   */
+  private int compactValues[];
+
+  /**
+   * The longest encoded string.  A string constant may not take more than
+   * 65535 bytes in a class file.
+   */
+  private static final int MAX_COMPACT_CHUNK = 65000;
+
+  /**
+   * The resource with the buffered input layer of the lexers
+   */
+  private static final String BUFFERED_INPUT = "skeleton/input/buffered.java";
+
+  /**
+   * Tables are instance members unless --static is given, in which case
+   * they are built once per class and shared by all of its instances.
+   * @return the modifier of a table or table row class
+   */
+  private String staticModifier() {
+    return environment.isStaticTables() ? "static " : "";
+  }
+
+  /**
+   * Shared tables and their rows cannot be changed
+   * @return the modifier of a shared table or table row field
+   */
+  private String finalModifier() {
+    return environment.isStaticTables() ? "final " : "";
+  }
+
+  /**
+   * @return the modifiers of a table declaration
+   */
+  private String sharedModifiers() {
+    return staticModifier() + finalModifier();
+  }
+
+  @Override
+  protected int getLastCharacter() {
+    return Character.MAX_VALUE;
+  }
+
   @Override
   public String getLanguageCode() {
     return "java";
@@ -82,9 +140,46 @@ public class Java extends BaseLanguageSupport {
     environment.output.printf("break;\n");
   }
 
+  /**
+   * Print the buffered input layer that gives the lexer its getNextChar
+   */
+  private void printBufferedInput() {
+    InputStream is = getClass().getClassLoader().getResourceAsStream(BUFFERED_INPUT);
+    if (is == null) {
+      System.err.println("\n\nWarning: internal skeleton \"" + BUFFERED_INPUT + "\" not found.\n");
+      return;
+    }
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(is));
+      String line = reader.readLine();
+      while (line != null) {
+        environment.output.println(line);
+        line = reader.readLine();
+      }
+    } catch (IOException e) {
+      System.err.println("\n\nWarning: internal skeleton \"" + BUFFERED_INPUT + "\" cannot be read: " + e.getMessage());
+    } finally {
+      try {
+        is.close();
+      } catch (IOException unused) {
+        // nothing left to read
+      }
+    }
+  }
+
   @Override
   public void generateLexerHeader() {
     environment.output.println();
+    if (environment.isBufferedInput()) {
+      printBufferedInput();
+      environment.output.println();
+    }
+    if (runtime.getLexerDfa() != null) {
+      printRegexScanner(runtime.getLexerDfa());
+    }
+    if (runtime.getCharacterClasses().size() > 0) {
+      printCharacterClassTable(new CharacterClassTable(runtime.getCharacterClasses(), getLastCharacter()));
+    }
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("// LexicalRecognizer\n");
     indent(environment.output, environment.getIndent() - 1);
@@ -96,11 +191,28 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent());
     environment.output.printf("if (initialize) {\n");
     indent(environment.output, environment.getIndent());
+    environment.output.printf("  parserElementMode = DEFAULT_LEXER_MODE;\n");
+    indent(environment.output, environment.getIndent());
     environment.output.printf("  currentChar = getNextChar(true);\n");
     indent(environment.output, environment.getIndent());
     environment.output.printf("}\n\n");
+    if (environment.isBufferedInput()) {
+      indent(environment.output, environment.getIndent());
+      environment.output.printf("startToken();\n");
+    }
     indent(environment.output, environment.getIndent());
-    environment.output.printf("lexicalValue = new StackElement();\n\n");
+    if (environment.isRecycleValues()) {
+      // the recycled value keeps the fields of its last token
+      environment.output.printf("lexicalValue = recycledStackElement();\n");
+      indent(environment.output, environment.getIndent());
+      environment.output.printf("if (lexicalValue == null) {\n");
+      indent(environment.output, environment.getIndent() + 1);
+      environment.output.printf("lexicalValue = new StackElement();\n");
+      indent(environment.output, environment.getIndent());
+      environment.output.printf("}\n\n");
+    } else {
+      environment.output.printf("lexicalValue = new StackElement();\n\n");
+    }
     
     if (environment.lexerModes.size() > 1) {
       indent(environment.output, environment.getIndent());
@@ -110,6 +222,145 @@ public class Java extends BaseLanguageSupport {
     }
   }
 
+  /**
+   * Print the tables of the automaton of the regular expressions, and the
+   * routine that runs it from the current character.  With buffered input
+   * it backs up to the end of the longest match, or to where it started if
+   * nothing matched.  Otherwise the automaton cannot back up, as checked
+   * when it is compiled, and it stops where no expression can go on.
+   */
+  private void printRegexScanner(Dfa dfa) {
+    int i = environment.getIndent() - 1;
+    indent(environment.output, i);
+    environment.output.printf("// Automaton of the regular expressions\n");
+    indent(environment.output, i);
+    environment.output.printf("private static final int LEXER_CLASSES = %d;\n\n", dfa.getNumberOfClasses());
+    printRegexTable("lexerClassStarts", dfa.getClassStarts());
+    printRegexTable("lexerModeStarts", dfa.getModeStarts());
+    printRegexTable("lexerTransitions", dfa.getTransitions());
+    printRegexTable("lexerAccepts", dfa.getAccepts());
+    boolean buffered = environment.isBufferedInput();
+    environment.output.printf(
+      indent(i) + "/**\n" +
+      indent(i) + " * Match the longest input accepted by the regular expressions of a mode\n" +
+      indent(i) + " * @param mode is the lexer mode\n" +
+      indent(i) + " * @return the number of the expression matched, or 0\n" +
+      indent(i) + " */\n" +
+      indent(i) + "private int matchRegex(int mode) {\n" +
+      indent(i+1) + "int state = lexerModeStarts[mode];\n" +
+      indent(i+1) + "int match = 0;\n" +
+      (buffered ?
+      indent(i+1) + "markInput();\n" : "") +
+      indent(i+1) + "while (true) {\n" +
+      indent(i+2) + "int next = -1;\n" +
+      indent(i+2) + "if (currentChar != '\\0') {\n" +
+      indent(i+3) + "int low = 0;\n" +
+      indent(i+3) + "int high = LEXER_CLASSES - 1;\n" +
+      indent(i+3) + "while (low < high) {\n" +
+      indent(i+4) + "int middle = (low + high + 1) >> 1;\n" +
+      indent(i+4) + "if (lexerClassStarts[middle] <= currentChar) {\n" +
+      indent(i+5) + "low = middle;\n" +
+      indent(i+4) + "} else {\n" +
+      indent(i+5) + "high = middle - 1;\n" +
+      indent(i+4) + "}\n" +
+      indent(i+3) + "}\n" +
+      indent(i+3) + "next = lexerTransitions[state * LEXER_CLASSES + low];\n" +
+      indent(i+2) + "}\n" +
+      indent(i+2) + "if (next < 0) {\n" +
+      (buffered ?
+      indent(i+3) + "resetInput();\n" : "") +
+      indent(i+3) + "return match;\n" +
+      indent(i+2) + "}\n" +
+      indent(i+2) + "state = next;\n" +
+      indent(i+2) + "currentChar = getNextChar(false);\n" +
+      (buffered ?
+      indent(i+2) + "if (lexerAccepts[state] != 0) {\n" +
+      indent(i+3) + "match = lexerAccepts[state];\n" +
+      indent(i+3) + "markInput();\n" +
+      indent(i+2) + "}\n" :
+      indent(i+2) + "match = lexerAccepts[state];\n") +
+      indent(i+1) + "}\n" +
+      indent(i) + "}\n\n");
+  }
+
+  /**
+   * Print the table of the character classes tested with $[...].  The
+   * masks of each distinct block of characters are a string, so that
+   * large tables do not weigh on the initializer of the class.
+   */
+  private void printCharacterClassTable(CharacterClassTable table) {
+    int i = environment.getIndent() - 1;
+    indent(environment.output, i);
+    environment.output.printf("// Character classes of the lexer\n");
+    indent(environment.output, i);
+    environment.output.printf("private %sint charClassBlocks[] = {\n", sharedModifiers());
+    printTableValues(environment.output, environment.getIndent(), table.getBlocks());
+    indent(environment.output, i);
+    environment.output.printf("};\n\n");
+    indent(environment.output, i);
+    environment.output.printf("private %schar charClassMasks[] = joinCharClassMasks(new String[] {\n", sharedModifiers());
+    int masks[] = table.getMasks();
+    for (int block = 0; block < masks.length; block += CharacterClassTable.BLOCK_SIZE) {
+      indent(environment.output, environment.getIndent());
+      environment.output.print('"');
+      for (int c = block; c < block + CharacterClassTable.BLOCK_SIZE; c++) {
+        // unicode escapes of line ends or quotes would break the literal
+        if (masks[c] < 256) {
+          environment.output.printf("\\%o", masks[c]);
+        } else {
+          environment.output.printf("\\u%04x", masks[c]);
+        }
+      }
+      environment.output.printf("\",\n");
+    }
+    indent(environment.output, i);
+    environment.output.printf("});\n\n");
+    environment.output.printf(
+      indent(i) + "/**\n" +
+      indent(i) + " * Join the blocks of the masks of the character classes\n" +
+      indent(i) + " * @param blocks are the masks of each block, as a string\n" +
+      indent(i) + " * @return the masks of all the blocks\n" +
+      indent(i) + " */\n" +
+      indent(i) + "private static char[] joinCharClassMasks(String blocks[]) {\n" +
+      indent(i+1) + "char masks[] = new char[blocks.length * %d];\n" +
+      indent(i+1) + "for (int i = 0; i < blocks.length; i++) {\n" +
+      indent(i+2) + "blocks[i].getChars(0, %d, masks, i * %d);\n" +
+      indent(i+1) + "}\n" +
+      indent(i+1) + "return masks;\n" +
+      indent(i) + "}\n\n",
+      CharacterClassTable.BLOCK_SIZE, CharacterClassTable.BLOCK_SIZE, CharacterClassTable.BLOCK_SIZE);
+  }
+
+  private void printRegexTable(String name, int values[]) {
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private %sint %s[] = {\n", sharedModifiers(), name);
+    printTableValues(environment.output, environment.getIndent(), values);
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("};\n\n");
+  }
+
+  @Override
+  public void generateRegexDispatch(FormattingPrintStream output, String lexerMode, int modeIndex, List<RegexToken> tokens) {
+    indent(output, environment.getIndent());
+    output.printf("switch (matchRegex(%d)) {\n", modeIndex);
+    int expression = 1;
+    for (RegexToken token : tokens) {
+      if (token.getLexerMode().equals(lexerMode)) {
+        indent(output, environment.getIndent() + 1);
+        output.printf("case %d: // %s\n", expression, token.getTerminal().getName());
+        if (token.getAction() != null) {
+          printRegexAction(output, token.getAction(), 2);
+        }
+        indent(output, environment.getIndent() + 2);
+        output.printFragment(Fragments.RETURN_VALUE, getRegexTokenValue(token.getTerminal()));
+        output.printf(";\n");
+      }
+      expression++;
+    }
+    indent(output, environment.getIndent());
+    output.printf("}\n");
+  }
+
   @Override
   public void generateLexerModeDefinition(String lexerMode, int index) {
     indent(environment.include, environment.getIndent() - 1);
@@ -163,7 +414,11 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, 1);
     environment.output.printf("// Code Generator\n");
     indent(environment.output, 1);
-    environment.output.printf("private static final int STACK_DEPTH = 5000;\n");
+    environment.output.printf("private static final int STACK_DEPTH = %d;\n", getStackDepth());
+    indent(environment.output, 1);
+    environment.output.printf("private static final boolean STACK_GROWS = %b;\n", environment.isGrowable());
+    indent(environment.output, 1);
+    environment.output.printf("private static final boolean RECYCLE_VALUES = %b;\n", environment.isRecycleValues());
     indent(environment.output, 1);
     environment.output.printf("StackElement stack[] = new StackElement[STACK_DEPTH];\n");
     indent(environment.output, 1);
@@ -191,7 +446,11 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent());
     environment.output.printf("// Code Generator\n");
     indent(environment.output, environment.getIndent());
-    environment.output.printf("private static final int STACK_DEPTH = 5000;\n");
+    environment.output.printf("private static final int STACK_DEPTH = %d;\n", getStackDepth());
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("private static final boolean STACK_GROWS = %b;\n", environment.isGrowable());
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("private static final boolean RECYCLE_VALUES = %b;\n", environment.isRecycleValues());
     indent(environment.output, environment.getIndent());
     environment.output.printf("StackElement stack[] = new StackElement[STACK_DEPTH];\n");
     indent(environment.output, environment.getIndent());
@@ -214,9 +473,9 @@ public class Java extends BaseLanguageSupport {
         environment.output.printf("// Contains tokens in compact mode, and column in matrix\n");
         indent(environment.output, environment.getIndent() - 1);
         if (numberOfErrorTokens != 0) {
-          environment.output.printf("int recoverTable[] = {\n");
+          environment.output.printf("%sint recoverTable[] = {\n", sharedModifiers());
         } else {
-          environment.output.printf("int recoverTable[] = {0};\n\n");
+          environment.output.printf("%sint recoverTable[] = {0};\n\n", sharedModifiers());
         }
   }
 
@@ -269,9 +528,9 @@ public class Java extends BaseLanguageSupport {
   @Override
   public void generateTokensHeader(int terminals) {
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private static int TOKENS=%d;\n", terminals);
+    environment.output.printf("private static %sint TOKENS=%d;\n", finalModifier(), terminals);
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private static int tokens[] = {\n");
+    environment.output.printf("private static %sint tokens[] = {\n", finalModifier());
   }
 
   @Override
@@ -300,15 +559,15 @@ public class Java extends BaseLanguageSupport {
     }
     environment.include.printf("\n");
     indent(environment.include, environment.getIndent() - 1);
-    environment.include.printf("private class TokenDef {\n");
+    environment.include.printf("private %sclass TokenDef {\n", staticModifier());
     indent(environment.output, environment.getIndent());
-    environment.include.printf("int token;\n");
+    environment.include.printf("%sint token;\n", finalModifier());
     indent(environment.include, environment.getIndent());
-    environment.include.printf("String name;\n");
+    environment.include.printf("%sString name;\n", finalModifier());
     indent(environment.include, environment.getIndent());
-    environment.include.printf("String fullName;\n");
+    environment.include.printf("%sString fullName;\n", finalModifier());
     indent(environment.include, environment.getIndent());
-    environment.include.printf("boolean reserved;\n\n");
+    environment.include.printf("%sboolean reserved;\n\n", finalModifier());
     indent(environment.include, environment.getIndent());
     environment.include.printf("TokenDef(String name, String fullName, int token, boolean reserved) {\n");
     indent(environment.include, environment.getIndent() + 1);
@@ -324,7 +583,7 @@ public class Java extends BaseLanguageSupport {
     indent(environment.include, environment.getIndent() - 1);
     environment.include.printf("}\n\n");
     indent(environment.include, environment.getIndent() - 1);
-    environment.include.printf("private TokenDef tokenDefs[] = {\n");
+    environment.include.printf("private %sTokenDef tokenDefs[] = {\n", sharedModifiers());
     int i = 0;
     for (Terminal id : runtime.getTerminals()) {
       indent(environment.include, environment.getIndent());
@@ -351,11 +610,22 @@ public class Java extends BaseLanguageSupport {
     environment.output.printf("private static final int SYMBS=%d;\n\n", runtime.getTerminals().size() + runtime.getNonTerminals().size() - 1);
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("private static final int ACCEPT=Integer.MAX_VALUE;\n\n");
+    if (environment.isCompact()) {
+      printCompactDecoder();
+    }
     if (environment.isPacked() == false) {
+      printTokenHash();
+      environment.output.printf("\n");
+    }
+    printReservedHash();
+    environment.output.printf("\n");
+    if (environment.isPacked() == false && environment.isCompact()) {
+      compactValues = new int[runtime.getStates().length * (runtime.getTerminals().size() + runtime.getNonTerminals().size() - 1)];
+    } else if (environment.isPacked() == false) {
       indent(environment.output, environment.getIndent()-1);
       environment.output.printf("// Parsing Table\n");
       indent(environment.output, environment.getIndent()-1);
-      environment.output.printf("private int parsingTable[][] = {\n");
+      environment.output.printf("private %sint parsingTable[][] = {\n", sharedModifiers());
       indent(environment.output, environment.getIndent()-1);
       environment.output.print("        //  ");
       for (Terminal t : runtime.getTerminals()) {
@@ -378,10 +648,21 @@ public class Java extends BaseLanguageSupport {
     if (environment.isPacked() == true) {
       return;
     }
+    if (environment.isCompact()) {
+      int values[] = new int[runtime.getStates().length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = runtime.getStates()[i].getMessage();
+      }
+      environment.output.printf("\n");
+      indent(environment.output, environment.getIndent()-1);
+      environment.output.printf("// Parsing Errors\n");
+      printCompactTable("parsingError", "FINAL", values);
+      return;
+    }
     indent(environment.output, environment.getIndent()-1);
     environment.output.printf("\n// Parsing Errors\n");
     indent(environment.output, environment.getIndent()-1);
-    environment.output.printf("private int parsingError[] = {\n");
+    environment.output.printf("private %sint parsingError[] = {\n", sharedModifiers());
     int i = 0;
     for (State I : runtime.getStates()) {
       indent(environment.output, environment.getIndent());
@@ -398,6 +679,17 @@ public class Java extends BaseLanguageSupport {
 
   @Override
   public void printTableRow(int symbolCounter, int[] parserLine, int stateNumber) {
+    if (environment.isCompact()) {
+      System.arraycopy(parserLine, 0, compactValues, stateNumber * (symbolCounter + 1), symbolCounter + 1);
+      if (stateNumber == runtime.getStates().length - 1) {
+        indent(environment.output, environment.getIndent()-1);
+        environment.output.printf("// Parsing Table\n");
+        printCompactValues("parsingTableData", compactValues);
+        indent(environment.output, environment.getIndent()-1);
+        environment.output.printf("private static final int parsingTable[][] = decodeRows(parsingTableData, FINAL, SYMBS);\n");
+      }
+      return;
+    }
     indent(environment.output, environment.getIndent() );
     environment.output.printf(" /*%3d*/ {", stateNumber);
     int index;
@@ -432,15 +724,15 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("// Parsing table\n");
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private class Parser {\n");
+    environment.output.printf("private %sclass Parser {\n", staticModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int position;\n");
+    environment.output.printf("%sint position;\n", finalModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int defa;\n");
+    environment.output.printf("%sint defa;\n", finalModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int elements;\n");
+    environment.output.printf("%sint elements;\n", finalModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int msg;\n\n");
+    environment.output.printf("%sint msg;\n\n", finalModifier());
     indent(environment.output, environment.getIndent());
     environment.output.printf("Parser(int position, int defa, int elements, int msg) {\n");
     indent(environment.output, environment.getIndent() + 1);
@@ -455,12 +747,27 @@ public class Java extends BaseLanguageSupport {
     environment.output.printf("}\n");
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("}\n\n");
+    if (environment.isCompact()) {
+      compactValues = new int[runtime.getStates().length * 4];
+      return;
+    }
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private Parser parsingTable[] = {\n");
+    environment.output.printf("private %sParser parsingTable[] = {\n", sharedModifiers());
   }
 
   @Override
   public void printPackedState(int stateNumber) {
+    if (environment.isCompact()) {
+      State state = runtime.getStates()[stateNumber];
+      compactValues[stateNumber * 4] = state.getPosition();
+      compactValues[stateNumber * 4 + 1] = state.getDefaultValue();
+      compactValues[stateNumber * 4 + 2] = state.getActionSize();
+      compactValues[stateNumber * 4 + 3] = state.getMessage();
+      if (stateNumber == runtime.getStates().length - 1) {
+        printCompactRows("Parser", "parsingTable", "FINAL", 4, compactValues);
+      }
+      return;
+    }
     indent(environment.output, environment.getIndent());
     environment.output.printf("new Parser(%d, %d, %d, %d)", runtime.getStates()[stateNumber].getPosition(),
         runtime.getStates()[stateNumber].getDefaultValue(), runtime.getStates()[stateNumber].getActionSize(),
@@ -480,7 +787,7 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent()-1);
     environment.output.printf("// Error Messages\n");
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private String errorTable[] = {\n");
+    environment.output.printf("private %sString errorTable[] = {\n", sharedModifiers());
   }
 
   @Override
@@ -505,11 +812,11 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("// Acction table\n");
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private class Action {\n");
+    environment.output.printf("private %sclass Action {\n", staticModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("private int symbol;\n");
+    environment.output.printf("private %sint symbol;\n", finalModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("private int state;\n\n");
+    environment.output.printf("private %sint state;\n\n", finalModifier());
     indent(environment.output, environment.getIndent());
     environment.output.printf("Action(int symbol, int state) {\n");
     indent(environment.output, environment.getIndent() + 1);
@@ -522,12 +829,24 @@ public class Java extends BaseLanguageSupport {
     environment.output.printf("}\n\n");
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("private static final int ACTIONS=%d;\n\n", runtime.getNumberOfActions());
+    if (environment.isCompact()) {
+      compactValues = new int[runtime.getNumberOfActions() * 2];
+      return;
+    }
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private Action actionTable[] = {\n");
+    environment.output.printf("private %sAction actionTable[] = {\n", sharedModifiers());
   }
 
   @Override
   public void printAction(int action, Action anAction) {
+    if (environment.isCompact()) {
+      compactValues[action * 2] = anAction.getSymbol().getToken();
+      compactValues[action * 2 + 1] = anAction.getStateNumber();
+      if (action == runtime.getNumberOfActions() - 1) {
+        printCompactRows("Action", "actionTable", "ACTIONS", 2, compactValues);
+      }
+      return;
+    }
     indent(environment.output, environment.getIndent());
     environment.output.printf("new Action(%d, %d)", anAction.getSymbol().getToken(), anAction.getStateNumber());
     if (action == runtime.getNumberOfActions() - 1) {
@@ -539,17 +858,126 @@ public class Java extends BaseLanguageSupport {
     }
   }
 
+  @Override
+  public void printCombTables() {
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("// Comb vectors of the action table\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final int COMB_SIZE=%d;\n\n", runtime.getCombNext().length);
+    if (environment.isCompact()) {
+      printCompactTable("actionCheck", "COMB_SIZE", runtime.getCombCheck());
+      printCompactTable("actionNext", "COMB_SIZE", runtime.getCombNext());
+      environment.output.printf("\n");
+      printTokenHash();
+      return;
+    }
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private %sint actionCheck[] = {\n", sharedModifiers());
+    printTableValues(environment.output, environment.getIndent(), runtime.getCombCheck());
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("};\n\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private %sint actionNext[] = {\n", sharedModifiers());
+    printTableValues(environment.output, environment.getIndent(), runtime.getCombNext());
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("};\n\n");
+    printTokenHash();
+  }
+
+  /**
+   * Print the hash of the tokens to their columns, used by the comb and
+   * tabular skeletons to find a column without searching the tokens
+   */
+  private void printTokenHash() {
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("// Hash of the tokens to their columns\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final int TOKEN_HASH_SIZE=%d;\n\n", runtime.getTokenHash().length);
+    if (environment.isCompact()) {
+      printCompactTable("tokenHash", "TOKEN_HASH_SIZE", runtime.getTokenHash());
+      return;
+    }
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private %sint tokenHash[] = {\n", sharedModifiers());
+    printTableValues(environment.output, environment.getIndent(), runtime.getTokenHash());
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("};\n");
+  }
+
+  /**
+   * Print the perfect hashes of the reserved words to their token
+   * definitions, one by the exact word and one ignoring case, with the
+   * routines that probe them.  The generated hash must compute the same
+   * values as {@link PerfectHash}.
+   */
+  private void printReservedHash() {
+    PerfectHash exact = hashReservedWords(false);
+    PerfectHash anyCase = hashReservedWords(true);
+
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("// Perfect hash of the reserved words to their token definitions\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final int RESERVED_WORDS=%d;\n", exact.getSlots().length);
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final int RESERVED_WORDS_IGNORE_CASE=%d;\n\n", anyCase.getSlots().length);
+    printReservedTable("reservedSeeds", "RESERVED_WORDS", exact.getSeeds());
+    printReservedTable("reservedSlots", "RESERVED_WORDS", getReservedDefinitions(exact));
+    printReservedTable("reservedSeedsIgnoreCase", "RESERVED_WORDS_IGNORE_CASE", anyCase.getSeeds());
+    printReservedTable("reservedSlotsIgnoreCase", "RESERVED_WORDS_IGNORE_CASE", getReservedDefinitions(anyCase));
+    int i = environment.getIndent() - 1;
+    environment.output.printf(
+      indent(i) + "/**\n" +
+      indent(i) + " * Find the only token definition that a word can be\n" +
+      indent(i) + " * @param word is the word\n" +
+      indent(i) + " * @param seeds are the seeds of the buckets of the hash\n" +
+      indent(i) + " * @param slots are the token definitions of the slots of the hash\n" +
+      indent(i) + " * @param ignoreCase is true to hash the word in lower case\n" +
+      indent(i) + " * @return the index of the token definition, or -1\n" +
+      indent(i) + " */\n" +
+      indent(i) + "private static int findReservedDefinition(String word, int seeds[], int slots[], boolean ignoreCase) {\n" +
+      indent(i+1) + "if (slots.length == 0) {\n" +
+      indent(i+2) + "return -1;\n" +
+      indent(i+1) + "}\n" +
+      indent(i+1) + "int seed = seeds[reservedHash(word, %d, ignoreCase) %% seeds.length];\n" +
+      indent(i+1) + "return slots[seed < 0 ? -seed - 1 : reservedHash(word, seed, ignoreCase) %% slots.length];\n" +
+      indent(i) + "}\n\n" +
+      indent(i) + "private static int reservedHash(String word, int basis, boolean ignoreCase) {\n" +
+      indent(i+1) + "int hash = basis;\n" +
+      indent(i+1) + "for (int i = 0; i < word.length(); i++) {\n" +
+      indent(i+2) + "char c = word.charAt(i);\n" +
+      indent(i+2) + "if (ignoreCase) {\n" +
+      indent(i+3) + "c = Character.toLowerCase(Character.toUpperCase(c));\n" +
+      indent(i+2) + "}\n" +
+      indent(i+2) + "hash = (hash ^ c) * %d;\n" +
+      indent(i+1) + "}\n" +
+      indent(i+1) + "return (hash ^ (hash >>> 16)) & 0x7fffffff;\n" +
+      indent(i) + "}\n",
+      PerfectHash.BASIS, PerfectHash.PRIME);
+  }
+
+  private void printReservedTable(String name, String size, int values[]) {
+    if (environment.isCompact()) {
+      printCompactTable(name, size, values);
+      return;
+    }
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private %sint %s[] = {\n", sharedModifiers(), name);
+    printTableValues(environment.output, environment.getIndent(), values);
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("};\n\n");
+  }
+
   @Override
   public void printGoToTableHeader() {
     environment.output.printf("\n");
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("// Goto table\n");
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private class Goto {\n");
+    environment.output.printf("private %sclass Goto {\n", staticModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int origin;\n");
+    environment.output.printf("%sint origin;\n", finalModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int destination;\n\n");
+    environment.output.printf("%sint destination;\n\n", finalModifier());
     indent(environment.output, environment.getIndent());
     environment.output.printf("Goto(int origin, int destination) {\n");
     indent(environment.output, environment.getIndent() + 1);
@@ -562,12 +990,24 @@ public class Java extends BaseLanguageSupport {
     environment.output.printf("}\n\n");
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("private static final int NUM_GOTOS=%d;\n", runtime.getNumberOfGoTos());
+    if (environment.isCompact()) {
+      compactValues = new int[runtime.getNumberOfGoTos() * 2];
+      return;
+    }
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private Goto gotoTable[] = {\n");
+    environment.output.printf("private %sGoto gotoTable[] = {\n", sharedModifiers());
   }
 
   @Override
   public void printGoTo(int gotoIndex, GoTo pGoto) {
+    if (environment.isCompact()) {
+      compactValues[gotoIndex * 2] = pGoto.getOrigin();
+      compactValues[gotoIndex * 2 + 1] = pGoto.getDestination();
+      if (gotoIndex == runtime.getNumberOfGoTos() - 1) {
+        printCompactRows("Goto", "gotoTable", "NUM_GOTOS", 2, compactValues);
+      }
+      return;
+    }
     indent(environment.output, environment.getIndent());
     environment.output.printf("new Goto(%d, %d)", pGoto.getOrigin(), pGoto.getDestination());
     if (gotoIndex == runtime.getNumberOfGoTos() - 1) {
@@ -590,11 +1030,11 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("// symbols and reductions table\n");
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private class Grammar {\n");
+    environment.output.printf("private %sclass Grammar {\n", staticModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int symbol;\n");
+    environment.output.printf("%sint symbol;\n", finalModifier());
     indent(environment.output, environment.getIndent());
-    environment.output.printf("int reductions;\n\n");
+    environment.output.printf("%sint reductions;\n\n", finalModifier());
     indent(environment.output, environment.getIndent());
     environment.output.printf("Grammar(int symbol, int reductions) {\n");
     indent(environment.output, environment.getIndent() + 1);
@@ -606,26 +1046,22 @@ public class Java extends BaseLanguageSupport {
     indent(environment.output, environment.getIndent() - 1);
     environment.output.printf("}\n\n");
     int numberOfRules = runtime.getRules().size();
-    indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private Grammar grammarTable[]={\n");
-    int index = 0;
-    for (Rule stx : runtime.getRules()) {
-      int itemSize = stx.getItems().size();
-      indent(environment.output, environment.getIndent());
-      environment.output.printf("/*Rule %3d */ new Grammar(%6d, %6d)", stx.getRulenum(),
-          environment.isPacked() ? stx.getLeftHand().getToken() : stx.getLeftHandId(), itemSize);
-      if (++index == numberOfRules) {
-        environment.output.printf("\n");
-        indent(environment.output, environment.getIndent() - 1);
-        environment.output.printf("};\n\n");
-      } else {
-        environment.output.printf(",\n");
+    if (environment.isCompact()) {
+      int values[] = new int[numberOfRules * 2];
+      int index = 0;
+      for (Rule stx : runtime.getRules()) {
+        values[index++] = environment.isPacked() ? stx.getLeftHand().getToken() : stx.getLeftHandId();
+        values[index++] = stx.getItems().size();
       }
+      printCompactRows("Grammar", "grammarTable", Integer.toString(numberOfRules), 2, values);
+      environment.output.printf("\n");
+    } else {
+      printGrammarRows(numberOfRules);
     }
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private final int NON_TERMINALS=%d;\n", runtime.getNonTerminals().size());
+    environment.output.printf("private %sfinal int NON_TERMINALS=%d;\n", staticModifier(), runtime.getNonTerminals().size());
     indent(environment.output, environment.getIndent() - 1);
-    environment.output.printf("private final int nonTerminals[] = {\n");
+    environment.output.printf("private %sfinal int nonTerminals[] = {\n", staticModifier());
     int i = 1;
     for (NonTerminal id : runtime.getNonTerminals()) {
       indent(environment.output, environment.getIndent());
@@ -648,4 +1084,196 @@ public class Java extends BaseLanguageSupport {
       environment.output.printf("}\n\n");
     }
   }
+
+  /**
+   * Print the grammar table one rule at a time
+   * @param numberOfRules is the number of rules in the grammar
+   */
+  private void printGrammarRows(int numberOfRules) {
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private %sGrammar grammarTable[]={\n", sharedModifiers());
+    int index = 0;
+    for (Rule stx : runtime.getRules()) {
+      int itemSize = stx.getItems().size();
+      indent(environment.output, environment.getIndent());
+      environment.output.printf("/*Rule %3d */ new Grammar(%6d, %6d)", stx.getRulenum(),
+          environment.isPacked() ? stx.getLeftHand().getToken() : stx.getLeftHandId(), itemSize);
+      if (++index == numberOfRules) {
+        environment.output.printf("\n");
+        indent(environment.output, environment.getIndent() - 1);
+        environment.output.printf("};\n\n");
+      } else {
+        environment.output.printf(",\n");
+      }
+    }
+  }
+
+  /**
+   * Compact tables are decoded with these routines when the generated
+   * class is loaded.  Each value is zig-zag encoded and written in four
+   * bit digits, least significant first, where an upper case letter is
+   * followed by more digits and a lower case letter is the last one.
+   */
+  private void printCompactDecoder() {
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("// Decoder of the compact tables\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static int[] decodeTable(String data[], int size) {\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int table[] = new int[size];\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int index = 0;\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int value = 0;\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int shift = 0;\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("for (int chunk = 0; chunk < data.length; chunk++) {\n");
+    indent(environment.output, environment.getIndent() + 1);
+    environment.output.printf("for (int i = 0; i < data[chunk].length(); i++) {\n");
+    indent(environment.output, environment.getIndent() + 2);
+    environment.output.printf("char c = data[chunk].charAt(i);\n");
+    indent(environment.output, environment.getIndent() + 2);
+    environment.output.printf("if (c >= 'a') {\n");
+    indent(environment.output, environment.getIndent() + 3);
+    environment.output.printf("value |= (c - 'a') << shift;\n");
+    indent(environment.output, environment.getIndent() + 3);
+    environment.output.printf("table[index++] = (value >>> 1) ^ -(value & 1);\n");
+    indent(environment.output, environment.getIndent() + 3);
+    environment.output.printf("value = 0;\n");
+    indent(environment.output, environment.getIndent() + 3);
+    environment.output.printf("shift = 0;\n");
+    indent(environment.output, environment.getIndent() + 2);
+    environment.output.printf("} else {\n");
+    indent(environment.output, environment.getIndent() + 3);
+    environment.output.printf("value |= (c - 'A') << shift;\n");
+    indent(environment.output, environment.getIndent() + 3);
+    environment.output.printf("shift += 4;\n");
+    indent(environment.output, environment.getIndent() + 2);
+    environment.output.printf("}\n");
+    indent(environment.output, environment.getIndent() + 1);
+    environment.output.printf("}\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("}\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("return table;\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("}\n\n");
+    if (environment.isPacked()) {
+      return;
+    }
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static int[][] decodeRows(String data[], int rows, int columns) {\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int values[] = decodeTable(data, rows * columns);\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int table[][] = new int[rows][columns];\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("for (int i = 0; i < rows; i++) {\n");
+    indent(environment.output, environment.getIndent() + 1);
+    environment.output.printf("System.arraycopy(values, i * columns, table[i], 0, columns);\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("}\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("return table;\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("}\n\n");
+  }
+
+  /**
+   * Print the values of a table as an array of encoded strings, cut at the
+   * margin.  Strings are also kept under the class file limit of a constant.
+   * @param name is the name of the array
+   * @param values are the values to encode
+   */
+  private void printCompactValues(String name, int values[]) {
+    String lineStart = indent(environment.getIndent());
+    int limit = Math.min(environment.getMargin() - lineStart.length() - 3, MAX_COMPACT_CHUNK);
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final String %s[] = {\n", name);
+    StringBuilder chunk = new StringBuilder();
+    boolean first = true;
+    for (int i = 0; i <= values.length; i++) {
+      String digits = i < values.length ? encodeValue(values[i]) : "";
+      if (i == values.length || chunk.length() + digits.length() > limit) {
+        if (chunk.length() > 0 || first) {
+          if (!first) {
+            environment.output.printf(",\n");
+          }
+          environment.output.printf("%s\"%s\"", lineStart, chunk);
+          chunk.setLength(0);
+          first = false;
+        }
+      }
+      chunk.append(digits);
+    }
+    environment.output.printf("\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("};\n");
+  }
+
+  /**
+   * Encode a value in the format read by decodeTable
+   * @param value is the value to encode
+   * @return the digits of the value
+   */
+  private String encodeValue(int value) {
+    StringBuilder digits = new StringBuilder();
+    int zigzag = (value << 1) ^ (value >> 31);
+    while ((zigzag & ~0xF) != 0) {
+      digits.append((char) ('A' + (zigzag & 0xF)));
+      zigzag >>>= 4;
+    }
+    digits.append((char) ('a' + zigzag));
+    return digits.toString();
+  }
+
+  /**
+   * Print a compact table of integers
+   * @param name is the name of the table
+   * @param size is the expression with the number of values
+   * @param values are the values of the table
+   */
+  private void printCompactTable(String name, String size, int values[]) {
+    printCompactValues(name + "Data", values);
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final int %s[] = decodeTable(%sData, %s);\n", name, name, size);
+  }
+
+  /**
+   * Print a compact table of rows.  A decoding routine builds the rows out
+   * of the values.
+   * @param rowClass is the class of each row
+   * @param name is the name of the table
+   * @param size is the expression with the number of rows
+   * @param width is the number of values per row
+   * @param values are the values of all the rows
+   */
+  private void printCompactRows(String rowClass, String name, String size, int width, int values[]) {
+    String decoder = "decode" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    printCompactValues(name + "Data", values);
+    environment.output.printf("\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static %s[] %s(String data[], int size) {\n", rowClass, decoder);
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("int values[] = decodeTable(data, size * %d);\n", width);
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("%s table[] = new %s[size];\n", rowClass, rowClass);
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("for (int i = 0; i < size; i++) {\n");
+    indent(environment.output, environment.getIndent() + 1);
+    environment.output.printf("table[i] = new %s(", rowClass);
+    for (int i = 0; i < width; i++) {
+      environment.output.printf(i == 0 ? "values[i * %d]" : ", values[i * %d + %d]", width, i);
+    }
+    environment.output.printf(");\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("}\n");
+    indent(environment.output, environment.getIndent());
+    environment.output.printf("return table;\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("}\n\n");
+    indent(environment.output, environment.getIndent() - 1);
+    environment.output.printf("private static final %s %s[] = %s(%sData, %s);\n", rowClass, name, decoder, name, size);
+  }
 }
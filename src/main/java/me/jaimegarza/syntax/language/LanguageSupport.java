@@ -30,12 +30,14 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package me.jaimegarza.syntax.language;
 
 import java.io.IOException;
+import java.util.List;
 
 import me.jaimegarza.syntax.EmbeddedCodeProcessor;
 import me.jaimegarza.syntax.Lexer;
 import me.jaimegarza.syntax.definition.Action;
 import me.jaimegarza.syntax.definition.ErrorToken;
 import me.jaimegarza.syntax.definition.GoTo;
+import me.jaimegarza.syntax.definition.RegexToken;
 import me.jaimegarza.syntax.definition.Terminal;
 import me.jaimegarza.syntax.util.FormattingPrintStream;
 
@@ -263,6 +265,12 @@ public interface LanguageSupport {
    */
   void printAction(int action, Action anAction);
 
+  /**
+   * Emit the comb vectors of the action table, and the hash table
+   * that maps a token to its column in the comb
+   */
+  void printCombTables();
+
   /**
    * emit the goto table header
    */
@@ -300,4 +308,14 @@ public interface LanguageSupport {
    */
   void generateLexerModeCase(String mode, int i);
 
+  /**
+   * Append to the code of a lexer mode the call to the automaton of the
+   * regular expressions, returning the token matched after its action
+   * @param output is the code of the lexer mode
+   * @param mode is the name of the lexer mode
+   * @param modeIndex is the index of the lexer mode in the automaton
+   * @param tokens are the regular expression tokens of all the modes, numbered from 1
+   */
+  void generateRegexDispatch(FormattingPrintStream output, String mode, int modeIndex, List<RegexToken> tokens);
+
 }
@@ -28,6 +28,8 @@
 */
 package me.jaimegarza.syntax.language;
 
+import java.util.List;
+
 import me.jaimegarza.syntax.EmbeddedCodeProcessor;
 import me.jaimegarza.syntax.Lexer;
 import me.jaimegarza.syntax.code.Fragments;
@@ -36,10 +38,14 @@ import me.jaimegarza.syntax.definition.Driver;
 import me.jaimegarza.syntax.definition.ErrorToken;
 import me.jaimegarza.syntax.definition.GoTo;
 import me.jaimegarza.syntax.definition.NonTerminal;
+import me.jaimegarza.syntax.definition.RegexToken;
 import me.jaimegarza.syntax.definition.Rule;
 import me.jaimegarza.syntax.definition.State;
 import me.jaimegarza.syntax.definition.Terminal;
+import me.jaimegarza.syntax.regex.CharacterClassTable;
+import me.jaimegarza.syntax.regex.Dfa;
 import me.jaimegarza.syntax.util.FormattingPrintStream;
+import me.jaimegarza.syntax.util.PerfectHash;
 
 /**
  * Routines for supporting the pascal language
@@ -170,6 +176,9 @@ public class Pascal extends BaseLanguageSupport {
     }
     if (environment.isPacked()) {
       environment.include.println("{$DEFINE PACKED_TABLES}");
+      if (environment.isComb()) {
+        environment.include.println("{$DEFINE COMB_TABLES}");
+      }
     } else {
       environment.include.println("{$DEFINE MATRIX_TABLES}");
     }
@@ -187,9 +196,16 @@ public class Pascal extends BaseLanguageSupport {
                       .printf("  StxChar:char;\n")
                       .printf("  StxValue:TSTACK;\n")
                       .printf("  StxLexerMode:integer = DEFAULT_LEXER_MODE;\n")
-                      .printf("\n")
-                      .printf("function StxLexer:longint;\n")
-                      .printf("begin\n");
+                      .printf("\n");
+    if (runtime.getLexerDfa() != null) {
+      printRegexScanner(runtime.getLexerDfa());
+    }
+    if (runtime.getCharacterClasses().size() > 0) {
+      printCharacterClassTable(new CharacterClassTable(runtime.getCharacterClasses(), getLastCharacter()));
+    }
+    environment.output.printf("function StxLexer:longint;\n");
+    printLexerRead();
+    environment.output.printf("begin\n");
     if (environment.lexerModes.size() > 1) {
       indent(environment.output, environment.getIndent());
       environment.output.println("case StxLexerMode of\n");
@@ -201,8 +217,9 @@ public class Pascal extends BaseLanguageSupport {
   @Override
   public void generateLexerModeHeader(String lexerMode) {
     environment.output.printf("\n")
-                      .printf("function StxLexer_" + computeModeName(lexerMode) + ":longint;\n")
-                      .printf("begin\n");
+                      .printf("function StxLexer_" + computeModeName(lexerMode) + ":longint;\n");
+    printLexerRead();
+    environment.output.printf("begin\n");
   }
 
   @Override
@@ -225,6 +242,184 @@ public class Pascal extends BaseLanguageSupport {
     environment.output.printf("end;(* StxLexer *)\n");
   }
 
+  /**
+   * Print the tables of the automaton of the regular expressions, and the
+   * routine that runs it from the current character until no expression
+   * can go on.  The characters read past the longest match are given back
+   * with StxUngetChar, and the lexer reads them again through
+   * StxLexerNextChar.
+   */
+  private void printRegexScanner(Dfa dfa) {
+    environment.output.printf("{ Automaton of the regular expressions }\n"
+        + "Const\n"
+        + "  LEXER_CLASSES = %d;\n\n", dfa.getNumberOfClasses());
+    printRegexTable("StxLexerClassStarts", dfa.getClassStarts());
+    printRegexTable("StxLexerModeStarts", dfa.getModeStarts());
+    printRegexTable("StxLexerTransitions", dfa.getTransitions());
+    printRegexTable("StxLexerAccepts", dfa.getAccepts());
+    environment.output.printf(
+      "VAR\n" +
+      "  StxLexerPushback: array of char; { Characters given back, the next one last }\n" +
+      "  StxLexerPushbackCount: integer = 0;\n" +
+      "  StxLexerRead: array of char;     { Characters read by the automaton }\n" +
+      "\n" +
+      "{\n" +
+      "  Give back a character, to be read again before the rest of the input\n" +
+      "}\n" +
+      "procedure StxUngetChar(c:char);\n" +
+      "begin\n" +
+      "  if StxLexerPushbackCount = Length(StxLexerPushback) then\n" +
+      "    begin\n" +
+      "    if Length(StxLexerPushback) = 0 then\n" +
+      "      SetLength(StxLexerPushback, 16)\n" +
+      "    else\n" +
+      "      SetLength(StxLexerPushback, Length(StxLexerPushback) * 2);\n" +
+      "    end;\n" +
+      "  StxLexerPushback[StxLexerPushbackCount] := c;\n" +
+      "  StxLexerPushbackCount := StxLexerPushbackCount + 1;\n" +
+      "end;\n" +
+      "\n" +
+      "{\n" +
+      "  Get the next character of the lexer, the ones given back first\n" +
+      "}\n" +
+      "function StxLexerNextChar:char;\n" +
+      "begin\n" +
+      "  if StxLexerPushbackCount > 0 then\n" +
+      "    begin\n" +
+      "    StxLexerPushbackCount := StxLexerPushbackCount - 1;\n" +
+      "    StxLexerNextChar := StxLexerPushback[StxLexerPushbackCount];\n" +
+      "    end\n" +
+      "  else\n" +
+      "    StxLexerNextChar := StxNextChar;\n" +
+      "end;\n" +
+      "\n" +
+      "{\n" +
+      "  Match the longest input accepted by the regular expressions of a mode\n" +
+      "  and return the number of the expression matched, or 0.  What was read\n" +
+      "  past the match, or all of it if nothing matched, is given back\n" +
+      "}\n" +
+      "function StxMatchRegex(mode:integer):integer;\n" +
+      "VAR\n" +
+      "  state, match, next, low, high, middle: integer;\n" +
+      "  readCount, matchCount: integer;\n" +
+      "begin\n" +
+      "  state := StxLexerModeStarts[mode];\n" +
+      "  match := 0;\n" +
+      "  readCount := 0;\n" +
+      "  matchCount := 0;\n" +
+      "  while TRUE do\n" +
+      "    begin\n" +
+      "    next := -1;\n" +
+      "    if StxChar <> #0 then\n" +
+      "      begin\n" +
+      "      low := 0;\n" +
+      "      high := LEXER_CLASSES - 1;\n" +
+      "      while low < high do\n" +
+      "        begin\n" +
+      "        middle := (low + high + 1) div 2;\n" +
+      "        if StxLexerClassStarts[middle] <= ord(StxChar) then\n" +
+      "          low := middle\n" +
+      "        else\n" +
+      "          high := middle - 1;\n" +
+      "        end;\n" +
+      "      next := StxLexerTransitions[state * LEXER_CLASSES + low];\n" +
+      "      end;\n" +
+      "    if next < 0 then\n" +
+      "      begin\n" +
+      "      if readCount > matchCount then\n" +
+      "        begin\n" +
+      "        StxUngetChar(StxChar);\n" +
+      "        readCount := readCount - 1;\n" +
+      "        while readCount > matchCount do\n" +
+      "          begin\n" +
+      "          StxUngetChar(StxLexerRead[readCount]);\n" +
+      "          readCount := readCount - 1;\n" +
+      "          end;\n" +
+      "        StxChar := StxLexerRead[matchCount];\n" +
+      "        end;\n" +
+      "      StxMatchRegex := match;\n" +
+      "      exit;\n" +
+      "      end;\n" +
+      "    if readCount = Length(StxLexerRead) then\n" +
+      "      begin\n" +
+      "      if Length(StxLexerRead) = 0 then\n" +
+      "        SetLength(StxLexerRead, 16)\n" +
+      "      else\n" +
+      "        SetLength(StxLexerRead, Length(StxLexerRead) * 2);\n" +
+      "      end;\n" +
+      "    StxLexerRead[readCount] := StxChar;\n" +
+      "    readCount := readCount + 1;\n" +
+      "    state := next;\n" +
+      "    StxChar := StxLexerNextChar;\n" +
+      "    if StxLexerAccepts[state] <> 0 then\n" +
+      "      begin\n" +
+      "      match := StxLexerAccepts[state];\n" +
+      "      matchCount := readCount;\n" +
+      "      end;\n" +
+      "    end;\n" +
+      "end;\n\n");
+  }
+
+  /**
+   * The lexer functions read through StxLexerNextChar when there are
+   * regular expressions, so that they see the characters given back.  A
+   * local StxNextChar hides the one of the user.
+   */
+  private void printLexerRead() {
+    if (runtime.getLexerDfa() == null) {
+      return;
+    }
+    environment.output.printf("{ Read the characters given back first }\n")
+                      .printf("function StxNextChar:char;\n")
+                      .printf("begin\n")
+                      .printf("  StxNextChar := StxLexerNextChar;\n")
+                      .printf("end;\n")
+                      .printf("\n");
+  }
+
+  /**
+   * Print the table of the character classes tested with $[...]
+   */
+  private void printCharacterClassTable(CharacterClassTable table) {
+    environment.output.printf("{ Character classes of the lexer }\n"
+        + "Const\n"
+        + "  StxCharClassMasks : array [0..%d] of Word = (\n", table.getMasks().length - 1);
+    printTableValues(environment.output, 2, table.getMasks());
+    environment.output.printf("  );\n\n");
+  }
+
+  private void printRegexTable(String name, int values[]) {
+    environment.output.printf("  %s : array [0..%d] of LongInt = (\n", name, values.length - 1);
+    printTableValues(environment.output, 2, values);
+    environment.output.printf("  );\n\n");
+  }
+
+  @Override
+  public void generateRegexDispatch(FormattingPrintStream output, String lexerMode, int modeIndex, List<RegexToken> tokens) {
+    // the lexer code does not finish its last line
+    output.println();
+    indent(output, environment.getIndent());
+    output.printf("case StxMatchRegex(%d) of\n", modeIndex);
+    int expression = 1;
+    for (RegexToken token : tokens) {
+      if (token.getLexerMode().equals(lexerMode)) {
+        indent(output, environment.getIndent() + 1);
+        output.printf("%d: begin { %s }\n", expression, token.getTerminal().getName());
+        if (token.getAction() != null) {
+          printRegexAction(output, token.getAction(), 2);
+        }
+        indent(output, environment.getIndent() + 2);
+        output.printFragment(Fragments.RETURN_VALUE, getRegexTokenValue(token.getTerminal()));
+        output.printf(";\n");
+        indent(output, environment.getIndent() + 2);
+        output.printf("end;\n");
+      }
+      expression++;
+    }
+    indent(output, environment.getIndent());
+    output.printf("end;\n");
+  }
+
   @Override
   public void generateLexerModeDefinition(String lexerMode, int index) {
     environment.include.println("{$DEFINE " + computeModeName(lexerMode).toUpperCase() + "_MODE:=" + index + "}");
@@ -241,19 +436,33 @@ public class Pascal extends BaseLanguageSupport {
     environment.output.println();
   }
 
+  /**
+   * Print the depth and the value stack.  Growable stacks are dynamic arrays
+   */
+  private void printStacks() {
+    environment.output.printf("    STACK_DEPTH = %d;\n", getStackDepth());
+    if (environment.isGrowable()) {
+      environment.output.printf("{$DEFINE STACK_GROWS}\n");
+    }
+    environment.output.printf("\n")
+                      .printf("VAR\n");
+    if (environment.isGrowable()) {
+      environment.output.printf("    StxStack : Array of TStack;\n");
+    } else {
+      environment.output.printf("    StxStack : Array [0..STACK_DEPTH] of TStack;\n");
+    }
+    environment.output.printf("    pStxStack: Integer;\n");
+  }
+
   @Override
   public void generateCodeGeneratorHeader() {
     environment.output.printf("\n")
      
                       .printf("{ Code generator }\n")
                       .printf("\n")
-                      .printf("CONST\n")
-                      .printf("    STACK_DEPTH = 5000;\n")
-                      .printf("\n")
-                      .printf("VAR\n")
-                      .printf("    StxStack : Array [0..STACK_DEPTH] of TStack;\n")
-                      .printf("    pStxStack: Integer;\n")
-                      .printf("\n")
+                      .printf("CONST\n");
+    printStacks();
+    environment.output.printf("\n")
                       .printf("function StxCode(rule:integer):boolean;\n")
                       .printf("begin\n");
     indent(environment.output, environment.getIndent() - 1);
@@ -274,13 +483,9 @@ public class Pascal extends BaseLanguageSupport {
     environment.output.printf("\n")
     .printf("{ Code generator }\n")
     .printf("\n")
-    .printf("CONST\n")
-    .printf("    STACK_DEPTH = 5000;\n")
-    .printf("\n")
-    .printf("VAR\n")
-    .printf("  StxStack : Array [0..512] of TStack;\n")
-    .printf("  pStxStack: Integer;\n")
-    .printf("\n")
+    .printf("CONST\n");
+    printStacks();
+    environment.output.printf("\n")
     .printf("function StxCode(rule:integer):boolean;\n")
     .printf("begin\n");
     indent(environment.output, environment.getIndent() - 1);
@@ -401,6 +606,96 @@ public class Pascal extends BaseLanguageSupport {
       environment.output.println();
     }
     environment.output.printf(");\n");
+    printReservedHash();
+  }
+
+  /**
+   * Print the perfect hashes of the reserved words to their token
+   * definitions, one by the exact word and one ignoring case, with the
+   * routines that probe them.  They are declared forward in the include, as
+   * the lexer precedes them.  Case is folded for ASCII letters only, and the
+   * generated hash must compute the same values as {@link PerfectHash}.
+   */
+  private void printReservedHash() {
+    PerfectHash exact = hashReservedWords(false);
+    PerfectHash anyCase = hashReservedWords(true);
+
+    environment.include.printf("{Reserved words}\n");
+    environment.include.printf("Const\n");
+    environment.include.printf("  RESERVED_WORDS = %d;\n", exact.getSlots().length);
+    environment.include.printf("  RESERVED_WORDS_IGNORE_CASE = %d;\n\n", anyCase.getSlots().length);
+    environment.include.printf("function StxFindReservedWord(word:string):longint; forward;\n");
+    environment.include.printf("function StxFindReservedWordIgnoreCase(word:string):longint; forward;\n\n");
+
+    environment.output.printf("\n{ Perfect hash of the reserved words to their token definitions }\n");
+    environment.output.printf("Const\n");
+    printReservedTable("StxReservedSeeds", exact.getSeeds());
+    printReservedTable("StxReservedSlots", getReservedDefinitions(exact));
+    printReservedTable("StxReservedSeedsIgnoreCase", anyCase.getSeeds());
+    printReservedTable("StxReservedSlotsIgnoreCase", getReservedDefinitions(anyCase));
+    environment.output.printf(
+      "{ Fold an ASCII letter to lower case }\n" +
+      "function StxFoldCase(c:char; ignoreCase:boolean):longint;\n" +
+      "begin\n" +
+      "  if ignoreCase and (c >= 'A') and (c <= 'Z')\n" +
+      "  then StxFoldCase := ord(c) + ord('a') - ord('A')\n" +
+      "  else StxFoldCase := ord(c);\n" +
+      "end;\n" +
+      "\n" +
+      "function StxReservedHash(word:string; basis:int64; ignoreCase:boolean):longint;\n" +
+      "VAR\n" +
+      "  hash:int64;\n" +
+      "  i:integer;\n" +
+      "begin\n" +
+      "  hash := basis;\n" +
+      "  for i := 1 to length(word) do\n" +
+      "    hash := ((hash xor StxFoldCase(word[i], ignoreCase)) * %d) and $FFFFFFFF;\n" +
+      "  StxReservedHash := (hash xor (hash shr 16)) and $7FFFFFFF;\n" +
+      "end;\n" +
+      "\n" +
+      "{ Find the token of a reserved word by its perfect hash, or -1 }\n" +
+      "function StxFindReservedToken(word:string; const seeds, slots:array of longint; size:longint; ignoreCase:boolean):longint;\n" +
+      "VAR\n" +
+      "  seed, i, j:longint;\n" +
+      "  name:string;\n" +
+      "begin\n" +
+      "  StxFindReservedToken := -1;\n" +
+      "  if size = 0 then exit;\n" +
+      "  seed := seeds[StxReservedHash(word, %d, ignoreCase) mod size];\n" +
+      "  if seed < 0\n" +
+      "  then i := slots[-seed - 1]\n" +
+      "  else i := slots[StxReservedHash(word, seed, ignoreCase) mod size];\n" +
+      "  name := StxTokenDefs[i].name;\n" +
+      "  if length(name) <> length(word) then exit;\n" +
+      "  for j := 1 to length(word) do\n" +
+      "    if StxFoldCase(name[j], ignoreCase) <> StxFoldCase(word[j], ignoreCase) then exit;\n" +
+      "  StxFindReservedToken := StxTokenDefs[i].token;\n" +
+      "end;\n" +
+      "\n" +
+      "function StxFindReservedWord(word:string):longint;\n" +
+      "begin\n" +
+      "  StxFindReservedWord := StxFindReservedToken(word, StxReservedSeeds, StxReservedSlots, RESERVED_WORDS, FALSE);\n" +
+      "end;\n" +
+      "\n" +
+      "function StxFindReservedWordIgnoreCase(word:string):longint;\n" +
+      "begin\n" +
+      "  StxFindReservedWordIgnoreCase := StxFindReservedToken(word, StxReservedSeedsIgnoreCase, StxReservedSlotsIgnoreCase, RESERVED_WORDS_IGNORE_CASE, TRUE);\n" +
+      "end;\n\n",
+      PerfectHash.PRIME, PerfectHash.BASIS & 0xffffffffL);
+  }
+
+  /**
+   * Print one table of a perfect hash.  An empty hash still gets one
+   * element, that the routines never read.
+   */
+  private void printReservedTable(String name, int values[]) {
+    if (values.length == 0) {
+      environment.output.printf("  %s : array [0..0] of LongInt = (0);\n\n", name);
+      return;
+    }
+    environment.output.printf("  %s : array [0..%d] of LongInt = (\n", name, values.length - 1);
+    printTableValues(environment.output, 2, values);
+    environment.output.printf("  );\n\n");
   }
 
   @Override
@@ -430,6 +725,9 @@ public class Pascal extends BaseLanguageSupport {
     } else if (runtime.currentCharacter == 'r') {
       lexerReturnValue(output, lexer);
       return true;
+    } else if (runtime.currentCharacter == '[') {
+      // $[...] is left to lexerCharacterClass
+      return false;
     }
     output.print('$');
     return false; 
@@ -465,7 +763,7 @@ public class Pascal extends BaseLanguageSupport {
       if (runtime.currentCharacter == ')') {
         lexer.getCharacter();
       } else {
-        environment.error(runtime.lineNumber, "Unfinished return value.  Recognized %s.", returnValue);
+        environment.error(-1, "Unfinished return value.  Recognized %s.", returnValue);
       }
       output.printFragment(Fragments.RETURN_VALUE, returnValue);
     } else {
@@ -501,6 +799,12 @@ public class Pascal extends BaseLanguageSupport {
           if (lexerDollar(output, lexer)) {
             continue;
           }
+          if (runtime.currentCharacter == '[') {
+            if (!lexerCharacterClass(output, lexer)) {
+              return false;
+            }
+            continue;
+          }
           break;
 
         case '{': /* COMMENT in PAS */
@@ -713,6 +1017,26 @@ public class Pascal extends BaseLanguageSupport {
     }
   }
 
+  @Override
+  public void printCombTables() {
+    environment.output.printf("Const\n"
+        + "  NUM_GOTOS = %d;\n"
+          + "  COMB_SIZE = %d;\n"
+          + "  TOKEN_HASH_SIZE = %d;\n\n"
+          + "  {Comb vectors of the action table}\n"
+          + "  StxActionCheck : array [0..COMB_SIZE-1] of LongInt = (\n",
+          runtime.getNumberOfGoTos(), runtime.getCombNext().length, runtime.getTokenHash().length);
+    printTableValues(environment.output, 2, runtime.getCombCheck());
+    environment.output.printf("  );\n\n"
+          + "  StxActionNext : array [0..COMB_SIZE-1] of LongInt = (\n");
+    printTableValues(environment.output, 2, runtime.getCombNext());
+    environment.output.printf("  );\n\n"
+          + "  {Hash of the tokens to their columns}\n"
+          + "  StxTokenHash : array [0..TOKEN_HASH_SIZE-1] of LongInt = (\n");
+    printTableValues(environment.output, 2, runtime.getTokenHash());
+    environment.output.printf("  );\n");
+  }
+
   @Override
   public void printGoToTableHeader() {
     environment.output.printf("\n" + "  StxGotoTable : array [0..NUM_GOTOS-1] of GOTOS = (\n");
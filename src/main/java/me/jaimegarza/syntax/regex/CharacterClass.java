@@ -0,0 +1,173 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2013, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+ * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+ */
+package me.jaimegarza.syntax.regex;
+
+import java.util.BitSet;
+
+/**
+ * A set of characters tested by the code of a lexer with $[...].  The
+ * characters are listed, given as ranges like a-z, or named like [:alpha:],
+ * and a leading ^ takes the complement.  Named classes follow the
+ * predicates of java.lang.Character; for languages with eight bit
+ * characters they only hold ASCII characters.
+ * 
+ * @author jgarza
+ *
+ */
+public class CharacterClass {
+  private String text;
+  private int lastCharacter;
+  private BitSet members;
+  private int position;
+
+  /**
+   * Construct a character class from its text
+   * @param text is the class, brackets included
+   * @param lastCharacter is the highest character code of the target language
+   * @throws IllegalArgumentException if the text is not a valid class
+   */
+  public CharacterClass(String text, int lastCharacter) {
+    this.text = text;
+    this.lastCharacter = lastCharacter;
+    this.members = new BitSet(lastCharacter + 1);
+    parse();
+  }
+
+  private void parse() {
+    int end = text.length() - 1;
+    if (end < 1 || text.charAt(0) != '[' || text.charAt(end) != ']') {
+      throw new IllegalArgumentException("Character class " + text + " should be enclosed in brackets");
+    }
+    position = 1;
+    boolean negated = false;
+    if (position < end && text.charAt(position) == '^') {
+      negated = true;
+      position++;
+    }
+    while (position < end) {
+      if (text.charAt(position) == '[') {
+        int close = text.indexOf(":]", position);
+        if (text.charAt(position + 1) != ':' || close < 0 || close >= end) {
+          throw new IllegalArgumentException("Named class of " + text + " should be written as [:name:]");
+        }
+        addNamedClass(text.substring(position + 2, close));
+        position = close + 2;
+        continue;
+      }
+      char first = nextCharacter();
+      char last = first;
+      if (position < end - 1 && text.charAt(position) == '-') {
+        position++;
+        last = nextCharacter();
+        if (last < first) {
+          throw new IllegalArgumentException("Range " + first + "-" + last + " of " + text + " is reversed");
+        }
+      }
+      if (last > lastCharacter) {
+        throw new IllegalArgumentException("Character class " + text + " goes beyond the characters of the language");
+      }
+      members.set(first, last + 1);
+    }
+    if (negated) {
+      members.flip(0, lastCharacter + 1);
+    }
+  }
+
+  private char nextCharacter() {
+    char c = text.charAt(position++);
+    if (c != '\\') {
+      return c;
+    }
+    c = text.charAt(position++);
+    switch (c) {
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'f':
+        return '\f';
+      case 'b':
+        return '\b';
+      case '0':
+        return '\0';
+    }
+    return c;
+  }
+
+  private void addNamedClass(String name) {
+    int limit = lastCharacter > 0xff ? lastCharacter : 0x7f;
+    for (int i = 0; i <= limit; i++) {
+      char c = (char) i;
+      boolean member;
+      if (name.equals("alpha")) {
+        member = Character.isLetter(c);
+      } else if (name.equals("digit")) {
+        member = Character.isDigit(c);
+      } else if (name.equals("alnum")) {
+        member = Character.isLetterOrDigit(c);
+      } else if (name.equals("space")) {
+        member = Character.isWhitespace(c);
+      } else if (name.equals("upper")) {
+        member = Character.isUpperCase(c);
+      } else if (name.equals("lower")) {
+        member = Character.isLowerCase(c);
+      } else if (name.equals("xdigit")) {
+        member = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+      } else {
+        throw new IllegalArgumentException("Unknown named class [:" + name + ":] in " + text);
+      }
+      if (member) {
+        members.set(i);
+      }
+    }
+  }
+
+  /**
+   * @param c is the character
+   * @return true if the character belongs to the class
+   */
+  public boolean contains(int c) {
+    return members.get(c);
+  }
+
+  /**
+   * @return the text of the class, brackets included
+   */
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2013, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+ * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+ */
+package me.jaimegarza.syntax.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The table that maps each character to the bitmask of the character
+ * classes that hold it, bit n standing for the class n.  The characters
+ * are split in blocks of {@link #BLOCK_SIZE}, and blocks with the same
+ * masks are stored once, so the mask of c is found at
+ * masks[blocks[c / BLOCK_SIZE] + c % BLOCK_SIZE].  Languages with eight
+ * bit characters have a single block.
+ * 
+ * @author jgarza
+ *
+ */
+public class CharacterClassTable {
+  public static final int BLOCK_SIZE = 256;
+
+  private int blocks[];
+  private int masks[];
+
+  /**
+   * Construct the table of some character classes
+   * @param classes are the classes, in the order of their bits
+   * @param lastCharacter is the highest character code of the target language
+   */
+  public CharacterClassTable(List<CharacterClass> classes, int lastCharacter) {
+    blocks = new int[(lastCharacter + 1) / BLOCK_SIZE];
+    List<int[]> distinctBlocks = new ArrayList<int[]>();
+    for (int b = 0; b < blocks.length; b++) {
+      int block[] = new int[BLOCK_SIZE];
+      for (int i = 0; i < BLOCK_SIZE; i++) {
+        int c = b * BLOCK_SIZE + i;
+        for (int n = 0; n < classes.size(); n++) {
+          if (classes.get(n).contains(c)) {
+            block[i] |= 1 << n;
+          }
+        }
+      }
+      int index = 0;
+      while (index < distinctBlocks.size() && !Arrays.equals(distinctBlocks.get(index), block)) {
+        index++;
+      }
+      if (index == distinctBlocks.size()) {
+        distinctBlocks.add(block);
+      }
+      blocks[b] = index * BLOCK_SIZE;
+    }
+    masks = new int[distinctBlocks.size() * BLOCK_SIZE];
+    for (int index = 0; index < distinctBlocks.size(); index++) {
+      System.arraycopy(distinctBlocks.get(index), 0, masks, index * BLOCK_SIZE, BLOCK_SIZE);
+    }
+  }
+
+  /**
+   * @return the offset in the masks of each block of characters
+   */
+  public int[] getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * @return the masks of the distinct blocks, one block after the other
+   */
+  public int[] getMasks() {
+    return masks;
+  }
+
+  /**
+   * @param c is the character
+   * @return the bitmask of the classes that hold the character
+   */
+  public int getMask(int c) {
+    return masks[blocks[c / BLOCK_SIZE] + c % BLOCK_SIZE];
+  }
+
+}
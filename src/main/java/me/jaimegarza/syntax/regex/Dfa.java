@@ -0,0 +1,156 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2013, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+ * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+ */
+package me.jaimegarza.syntax.regex;
+
+/**
+ * The deterministic automaton that recognizes the regular expressions of
+ * all the lexer modes of a grammar.  Characters are grouped in classes
+ * that no expression tells apart, so that the transitions are a matrix of
+ * states by classes.
+ * 
+ * @author jgarza
+ *
+ */
+public class Dfa {
+  private int classStarts[];
+  private int modeStarts[];
+  private int transitions[];
+  private int accepts[];
+
+  /**
+   * Construct an automaton
+   * @param classStarts is the first character of each class, in ascending order
+   * @param modeStarts is the initial state of each lexer mode, or -1 when the mode has no expressions
+   * @param transitions is the next state for each state and class, or -1
+   * @param accepts is the number of the expression accepted in each state, or 0
+   */
+  public Dfa(int classStarts[], int modeStarts[], int transitions[], int accepts[]) {
+    this.classStarts = classStarts;
+    this.modeStarts = modeStarts;
+    this.transitions = transitions;
+    this.accepts = accepts;
+  }
+
+  /**
+   * @return the first character of each class
+   */
+  public int[] getClassStarts() {
+    return classStarts;
+  }
+
+  /**
+   * @return the initial state of each lexer mode, or -1
+   */
+  public int[] getModeStarts() {
+    return modeStarts;
+  }
+
+  /**
+   * @return the next state, by state and then class, or -1
+   */
+  public int[] getTransitions() {
+    return transitions;
+  }
+
+  /**
+   * @return the expression accepted by each state, or 0
+   */
+  public int[] getAccepts() {
+    return accepts;
+  }
+
+  /**
+   * @return the number of character classes
+   */
+  public int getNumberOfClasses() {
+    return classStarts.length;
+  }
+
+  /**
+   * @return the number of states
+   */
+  public int getNumberOfStates() {
+    return accepts.length;
+  }
+
+  /**
+   * Tell if the automaton can stop without accepting after it has read
+   * some input, so that the lexer must be able to read it again
+   * @return true if a state reached by a transition accepts nothing
+   */
+  public boolean canBackUp() {
+    for (int i = 0; i < transitions.length; i++) {
+      if (transitions[i] >= 0 && accepts[transitions[i]] == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find the class of a character
+   * @param c is the character
+   * @return the index of its class
+   */
+  public int getCharacterClass(char c) {
+    int low = 0;
+    int high = classStarts.length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >> 1;
+      if (classStarts[middle] <= c) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Run the automaton over a whole string
+   * @param mode is the index of the lexer mode
+   * @param input is the string to recognize
+   * @return the number of the expression that accepts all of the input, or 0
+   */
+  public int accept(int mode, String input) {
+    int state = modeStarts[mode];
+    for (int i = 0; i < input.length() && state >= 0; i++) {
+      state = transitions[state * classStarts.length + getCharacterClass(input.charAt(i))];
+    }
+    return state >= 0 ? accepts[state] : 0;
+  }
+
+  /**
+   * Returns the size of the automaton
+   */
+  @Override
+  public String toString() {
+    return "Dfa{states:" + getNumberOfStates() + ", classes:" + getNumberOfClasses() + "}";
+  }
+}
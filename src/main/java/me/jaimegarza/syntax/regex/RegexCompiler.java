@@ -0,0 +1,502 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2013, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+ * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+ */
+package me.jaimegarza.syntax.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import me.jaimegarza.syntax.regex.node.AlternationNode;
+import me.jaimegarza.syntax.regex.node.AnyCharNode;
+import me.jaimegarza.syntax.regex.node.CharNode;
+import me.jaimegarza.syntax.regex.node.CharRangeNode;
+import me.jaimegarza.syntax.regex.node.ComplementNode;
+import me.jaimegarza.syntax.regex.node.ConcatNode;
+import me.jaimegarza.syntax.regex.node.IntersectionNode;
+import me.jaimegarza.syntax.regex.node.OptionalNode;
+import me.jaimegarza.syntax.regex.node.RegexNode;
+import me.jaimegarza.syntax.regex.node.RepeatMinimumNTimes;
+import me.jaimegarza.syntax.regex.node.RepeatNtoMTimes;
+import me.jaimegarza.syntax.regex.node.RepeatZeroOrManyNode;
+import me.jaimegarza.syntax.regex.node.StringNode;
+
+/**
+ * Compiles the regular expressions of the lexer modes into one minimal
+ * {@link Dfa}.<p>
+ * 
+ * Each tree is turned into a nondeterministic automaton, the automata of
+ * a mode are joined under one initial state, the subset construction
+ * makes them deterministic and the states that cannot be told apart are
+ * merged.  When more than one expression accepts the same input, the one
+ * added first wins.
+ * 
+ * @author jgarza
+ *
+ */
+public class RegexCompiler {
+
+  /**
+   * One state of the nondeterministic automaton
+   */
+  private static class NfaState {
+    int number;
+    int accept;
+    List<NfaState> epsilons = new LinkedList<NfaState>();
+    List<Edge> edges = new LinkedList<Edge>();
+
+    NfaState(int number) {
+      this.number = number;
+    }
+  }
+
+  /**
+   * A transition on a range of characters
+   */
+  private static class Edge {
+    int from;
+    int to;
+    NfaState target;
+
+    Edge(int from, int to, NfaState target) {
+      this.from = from;
+      this.to = to;
+      this.target = target;
+    }
+  }
+
+  /**
+   * The states that start and end the automaton of a subexpression
+   */
+  private static class Fragment {
+    NfaState start;
+    NfaState end;
+
+    Fragment(NfaState start, NfaState end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  private List<NfaState> states = new ArrayList<NfaState>();
+  private Map<Integer, NfaState> modes = new HashMap<Integer, NfaState>();
+  private SortedSet<Integer> boundaries = new TreeSet<Integer>();
+  private int expressions = 0;
+
+  /**
+   * Add one expression to a lexer mode
+   * @param mode is the index of the lexer mode
+   * @param regex is the tree of the expression
+   * @return the number of the expression, starting with 1
+   */
+  public int addExpression(int mode, RegexNode regex) {
+    NfaState modeStart = modes.get(mode);
+    if (modeStart == null) {
+      modeStart = newState();
+      modes.put(mode, modeStart);
+    }
+    Fragment fragment = build(regex);
+    modeStart.epsilons.add(fragment.start);
+    fragment.end.accept = ++expressions;
+    return expressions;
+  }
+
+  /**
+   * Build the automaton of all the expressions added so far
+   * @param numberOfModes is the number of lexer modes
+   * @return the minimal automaton
+   */
+  public Dfa compile(int numberOfModes) {
+    boundaries.add(0);
+    int classStarts[] = new int[boundaries.size()];
+    int k = 0;
+    for (int boundary : boundaries) {
+      classStarts[k++] = boundary;
+    }
+    int classes = classStarts.length;
+
+    // subset construction
+    List<BitSet> subsets = new ArrayList<BitSet>();
+    Map<BitSet, Integer> subsetIndex = new HashMap<BitSet, Integer>();
+    int modeStarts[] = new int[numberOfModes];
+    for (int mode = 0; mode < numberOfModes; mode++) {
+      NfaState start = modes.get(mode);
+      if (start == null) {
+        modeStarts[mode] = -1;
+      } else {
+        BitSet subset = new BitSet();
+        subset.set(start.number);
+        modeStarts[mode] = addSubset(closure(subset), subsets, subsetIndex);
+      }
+    }
+    List<int[]> moves = new ArrayList<int[]>();
+    for (int i = 0; i < subsets.size(); i++) {
+      BitSet targets[] = new BitSet[classes];
+      BitSet subset = subsets.get(i);
+      for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+        for (Edge edge : states.get(s).edges) {
+          int last = classOf(classStarts, edge.to);
+          for (int c = classOf(classStarts, edge.from); c <= last; c++) {
+            if (targets[c] == null) {
+              targets[c] = new BitSet();
+            }
+            targets[c].set(edge.target.number);
+          }
+        }
+      }
+      int move[] = new int[classes];
+      for (int c = 0; c < classes; c++) {
+        move[c] = targets[c] == null ? -1 : addSubset(closure(targets[c]), subsets, subsetIndex);
+      }
+      moves.add(move);
+    }
+    int accepts[] = new int[subsets.size()];
+    for (int i = 0; i < subsets.size(); i++) {
+      BitSet subset = subsets.get(i);
+      for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+        int accept = states.get(s).accept;
+        if (accept != 0 && (accepts[i] == 0 || accept < accepts[i])) {
+          accepts[i] = accept;
+        }
+      }
+    }
+
+    return minimize(classStarts, modeStarts, moves, accepts);
+  }
+
+  /**
+   * Merge the states that accept the same expression and move to the same
+   * groups of states, until no group can be split.  The groups are then
+   * numbered in the order they are reached from the initial states.
+   */
+  private Dfa minimize(int classStarts[], int modeStarts[], List<int[]> moves, int accepts[]) {
+    int classes = classStarts.length;
+    int group[] = new int[accepts.length];
+    int groups = numberGroups(accepts, group);
+    while (true) {
+      List<String> signatures = new ArrayList<String>(accepts.length);
+      for (int s = 0; s < accepts.length; s++) {
+        StringBuilder signature = new StringBuilder().append(group[s]);
+        for (int next : moves.get(s)) {
+          signature.append(',').append(next < 0 ? -1 : group[next]);
+        }
+        signatures.add(signature.toString());
+      }
+      int newGroups = numberGroups(signatures.toArray(), group);
+      if (newGroups == groups) {
+        break;
+      }
+      groups = newGroups;
+    }
+
+    int order[] = new int[groups];
+    Arrays.fill(order, -1);
+    int representative[] = new int[groups];
+    List<Integer> queue = new ArrayList<Integer>();
+    for (int start : modeStarts) {
+      if (start >= 0 && order[group[start]] == -1) {
+        order[group[start]] = queue.size();
+        representative[queue.size()] = start;
+        queue.add(group[start]);
+      }
+    }
+    for (int i = 0; i < queue.size(); i++) {
+      for (int next : moves.get(representative[i])) {
+        if (next >= 0 && order[group[next]] == -1) {
+          order[group[next]] = queue.size();
+          representative[queue.size()] = next;
+          queue.add(group[next]);
+        }
+      }
+    }
+
+    int transitions[] = new int[groups * classes];
+    int finalAccepts[] = new int[groups];
+    for (int i = 0; i < groups; i++) {
+      int move[] = moves.get(representative[i]);
+      for (int c = 0; c < classes; c++) {
+        transitions[i * classes + c] = move[c] < 0 ? -1 : order[group[move[c]]];
+      }
+      finalAccepts[i] = accepts[representative[i]];
+    }
+    int finalModeStarts[] = new int[modeStarts.length];
+    for (int mode = 0; mode < modeStarts.length; mode++) {
+      finalModeStarts[mode] = modeStarts[mode] < 0 ? -1 : order[group[modeStarts[mode]]];
+    }
+    return new Dfa(classStarts, finalModeStarts, transitions, finalAccepts);
+  }
+
+  private int numberGroups(int keys[], int group[]) {
+    Object objects[] = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      objects[i] = keys[i];
+    }
+    return numberGroups(objects, group);
+  }
+
+  private int numberGroups(Object keys[], int group[]) {
+    Map<Object, Integer> numbers = new HashMap<Object, Integer>();
+    for (int i = 0; i < keys.length; i++) {
+      Integer number = numbers.get(keys[i]);
+      if (number == null) {
+        number = numbers.size();
+        numbers.put(keys[i], number);
+      }
+      group[i] = number;
+    }
+    return numbers.size();
+  }
+
+  private int addSubset(BitSet subset, List<BitSet> subsets, Map<BitSet, Integer> subsetIndex) {
+    Integer index = subsetIndex.get(subset);
+    if (index == null) {
+      index = subsets.size();
+      subsets.add(subset);
+      subsetIndex.put(subset, index);
+    }
+    return index;
+  }
+
+  private BitSet closure(BitSet subset) {
+    BitSet result = (BitSet) subset.clone();
+    LinkedList<NfaState> pending = new LinkedList<NfaState>();
+    for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+      pending.add(states.get(s));
+    }
+    while (!pending.isEmpty()) {
+      for (NfaState target : pending.removeFirst().epsilons) {
+        if (!result.get(target.number)) {
+          result.set(target.number);
+          pending.add(target);
+        }
+      }
+    }
+    return result;
+  }
+
+  private int classOf(int classStarts[], int c) {
+    int index = Arrays.binarySearch(classStarts, c);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  private NfaState newState() {
+    NfaState state = new NfaState(states.size());
+    states.add(state);
+    return state;
+  }
+
+  private void addEdge(NfaState from, int low, int high, NfaState to) {
+    from.edges.add(new Edge(low, high, to));
+    boundaries.add(low);
+    if (high < Character.MAX_VALUE) {
+      boundaries.add(high + 1);
+    }
+  }
+
+  /**
+   * Build the nondeterministic automaton of a tree
+   * @param node is the root of the tree
+   * @return the states that start and end the automaton
+   */
+  private Fragment build(RegexNode node) {
+    List<int[]> set = characterSet(node);
+    if (set != null) {
+      Fragment f = new Fragment(newState(), newState());
+      for (int range[] : set) {
+        addEdge(f.start, range[0], range[1], f.end);
+      }
+      return f;
+    }
+    if (node instanceof StringNode) {
+      String s = node.getString();
+      NfaState start = newState();
+      NfaState end = start;
+      for (int i = 0; i < s.length(); i++) {
+        NfaState next = newState();
+        addEdge(end, s.charAt(i), s.charAt(i), next);
+        end = next;
+      }
+      return new Fragment(start, end);
+    }
+    if (node instanceof AlternationNode) {
+      Fragment left = build(node.getLeft());
+      Fragment right = build(node.getRight());
+      Fragment f = new Fragment(newState(), newState());
+      f.start.epsilons.add(left.start);
+      f.start.epsilons.add(right.start);
+      left.end.epsilons.add(f.end);
+      right.end.epsilons.add(f.end);
+      return f;
+    }
+    if (node instanceof ConcatNode) {
+      Fragment left = build(node.getLeft());
+      Fragment right = build(node.getRight());
+      left.end.epsilons.add(right.start);
+      return new Fragment(left.start, right.end);
+    }
+    if (node instanceof OptionalNode) {
+      Fragment f = build(node.getLeft());
+      f.start.epsilons.add(f.end);
+      return f;
+    }
+    if (node instanceof RepeatZeroOrManyNode) {
+      return repeat(node.getLeft());
+    }
+    if (node instanceof RepeatMinimumNTimes) {
+      int min = ((RepeatMinimumNTimes) node).getMin();
+      return concatenate(times(node.getLeft(), min), repeat(node.getLeft()));
+    }
+    if (node instanceof RepeatNtoMTimes) {
+      RepeatNtoMTimes repeat = (RepeatNtoMTimes) node;
+      Fragment f = times(node.getLeft(), repeat.getMin());
+      for (int i = repeat.getMin(); i < repeat.getMax(); i++) {
+        Fragment optional = build(node.getLeft());
+        optional.start.epsilons.add(optional.end);
+        f = concatenate(f, optional);
+      }
+      return f;
+    }
+    throw new IllegalArgumentException("Regular expression " + node + " cannot be compiled");
+  }
+
+  private Fragment repeat(RegexNode node) {
+    Fragment body = build(node);
+    Fragment f = new Fragment(newState(), newState());
+    f.start.epsilons.add(body.start);
+    f.start.epsilons.add(f.end);
+    body.end.epsilons.add(body.start);
+    body.end.epsilons.add(f.end);
+    return f;
+  }
+
+  private Fragment times(RegexNode node, int count) {
+    NfaState state = newState();
+    Fragment f = new Fragment(state, state);
+    for (int i = 0; i < count; i++) {
+      f = concatenate(f, build(node));
+    }
+    return f;
+  }
+
+  private Fragment concatenate(Fragment left, Fragment right) {
+    left.end.epsilons.add(right.start);
+    return new Fragment(left.start, right.end);
+  }
+
+  /**
+   * Compute the characters matched by a node that matches exactly one
+   * character, as ascending disjoint ranges
+   * @param node is the node
+   * @return the ranges, or null if the node is not a set of characters
+   */
+  private List<int[]> characterSet(RegexNode node) {
+    List<int[]> set = new ArrayList<int[]>();
+    if (node instanceof CharNode) {
+      char c = ((CharNode) node).getC();
+      set.add(new int[] {c, c});
+    } else if (node instanceof StringNode && node.getString().length() == 1) {
+      char c = node.getString().charAt(0);
+      set.add(new int[] {c, c});
+    } else if (node instanceof CharRangeNode) {
+      set.add(new int[] {((CharRangeNode) node).getFrom(), ((CharRangeNode) node).getTo()});
+    } else if (node instanceof AnyCharNode) {
+      set.add(new int[] {0, '\n' - 1});
+      set.add(new int[] {'\n' + 1, Character.MAX_VALUE});
+    } else if (node instanceof AlternationNode) {
+      List<int[]> left = characterSet(node.getLeft());
+      List<int[]> right = characterSet(node.getRight());
+      if (left == null || right == null) {
+        return null;
+      }
+      set.addAll(left);
+      set.addAll(right);
+      return merge(set);
+    } else if (node instanceof ComplementNode) {
+      return complement(operand(node.getLeft()));
+    } else if (node instanceof IntersectionNode) {
+      return complement(merge(concat(complement(operand(node.getLeft())), complement(operand(node.getRight())))));
+    } else {
+      return null;
+    }
+    return set;
+  }
+
+  private List<int[]> operand(RegexNode node) {
+    List<int[]> set = characterSet(node);
+    if (set == null) {
+      throw new IllegalArgumentException("Regular expression " + node + " is not a set of characters");
+    }
+    return set;
+  }
+
+  private List<int[]> concat(List<int[]> left, List<int[]> right) {
+    List<int[]> set = new ArrayList<int[]>(left);
+    set.addAll(right);
+    return set;
+  }
+
+  private List<int[]> merge(List<int[]> set) {
+    int ranges[][] = set.toArray(new int[set.size()][]);
+    Arrays.sort(ranges, new java.util.Comparator<int[]>() {
+      public int compare(int[] a, int[] b) {
+        return a[0] - b[0];
+      }
+    });
+    List<int[]> merged = new ArrayList<int[]>();
+    for (int range[] : ranges) {
+      int last[] = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (last != null && range[0] <= last[1] + 1) {
+        last[1] = Math.max(last[1], range[1]);
+      } else {
+        merged.add(new int[] {range[0], range[1]});
+      }
+    }
+    return merged;
+  }
+
+  private List<int[]> complement(List<int[]> set) {
+    List<int[]> result = new ArrayList<int[]>();
+    int next = 0;
+    for (int range[] : merge(set)) {
+      if (range[0] > next) {
+        result.add(new int[] {next, range[0] - 1});
+      }
+      next = range[1] + 1;
+    }
+    if (next <= Character.MAX_VALUE) {
+      result.add(new int[] {next, Character.MAX_VALUE});
+    }
+    return result;
+  }
+}
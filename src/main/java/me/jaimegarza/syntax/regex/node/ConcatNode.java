@@ -41,8 +41,8 @@ public class ConcatNode extends RegexNode {
     if (left instanceof ConcatNode &&
         left.getRight() instanceof LiteralNode && 
         right instanceof LiteralNode) {
-      left = left.getLeft();
       right = new StringNode(left.getRight().getString() + right.getString());
+      left = left.getLeft();
     } else if (left instanceof LiteralNode && 
         right instanceof ConcatNode && 
         right.getLeft() instanceof LiteralNode) {
@@ -0,0 +1,215 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2013, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+ * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+ */
+package me.jaimegarza.syntax.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A minimal perfect hash of a set of words, computed by hash and displace.
+ * Each word falls in a bucket by its hash from {@link #BASIS}.  The seed of
+ * a bucket with one word is -slot-1, the slot of the word; the seed of a
+ * bucket with more words is the basis of a second hash that sends all of
+ * them to free slots.  A word is then found with at most two hashes and
+ * one comparison.<p>
+ * 
+ * The hash is FNV-1a over the characters of the word, so that the
+ * generated parsers of every language compute the same values.  Its high
+ * half is folded into the low one, as the low bits of FNV-1a depend only on
+ * the low bits of the basis and the characters.  When case
+ * is ignored the characters are folded to lower case first, over all of
+ * Unicode or, for languages with eight bit characters, over ASCII only.
+ * 
+ * @author jgarza
+ *
+ */
+public class PerfectHash {
+  /** basis of the hash that finds the bucket of a word */
+  public static final int BASIS = 0x811c9dc5;
+  /** multiplier of the hash */
+  public static final int PRIME = 16777619;
+  private static final int MAX_SEED = 1 << 24;
+
+  private String words[];
+  private boolean ignoreCase;
+  private boolean unicode;
+  private int seeds[];
+  private int slots[];
+
+  /**
+   * Compute the hash of some words.  Words that are the same once folded
+   * keep the first one.
+   * @param words are the words
+   * @param ignoreCase is true to find the words in any case
+   * @param unicode is true to fold all of Unicode, false to fold only ASCII
+   * @throws IllegalStateException if no seed separates the words of a bucket
+   */
+  public PerfectHash(String words[], boolean ignoreCase, boolean unicode) {
+    this.words = words;
+    this.ignoreCase = ignoreCase;
+    this.unicode = unicode;
+
+    List<Integer> distinct = new ArrayList<Integer>();
+    for (int i = 0; i < words.length; i++) {
+      if (findDistinct(distinct, words[i]) < 0) {
+        distinct.add(i);
+      }
+    }
+    int size = distinct.size();
+    seeds = new int[size];
+    slots = new int[size];
+    Arrays.fill(slots, -1);
+
+    List<List<Integer>> buckets = new ArrayList<List<Integer>>();
+    int largest = 0;
+    for (int i = 0; i < size; i++) {
+      buckets.add(new ArrayList<Integer>());
+    }
+    for (int i : distinct) {
+      List<Integer> bucket = buckets.get(hash(words[i], BASIS) % size);
+      bucket.add(i);
+      largest = Math.max(largest, bucket.size());
+    }
+
+    // the largest buckets are placed first, while most slots are free
+    for (int length = largest; length > 1; length--) {
+      for (int b = 0; b < size; b++) {
+        if (buckets.get(b).size() == length) {
+          seeds[b] = placeBucket(buckets.get(b));
+        }
+      }
+    }
+    int free = 0;
+    for (int b = 0; b < size; b++) {
+      if (buckets.get(b).size() == 1) {
+        while (slots[free] != -1) {
+          free++;
+        }
+        slots[free] = buckets.get(b).get(0);
+        seeds[b] = -free - 1;
+      }
+    }
+  }
+
+  private int placeBucket(List<Integer> bucket) {
+    int positions[] = new int[bucket.size()];
+    for (int seed = 1; seed < MAX_SEED; seed++) {
+      boolean placed = true;
+      for (int i = 0; i < positions.length && placed; i++) {
+        positions[i] = hash(words[bucket.get(i)], seed) % slots.length;
+        placed = slots[positions[i]] == -1;
+        for (int j = 0; j < i && placed; j++) {
+          placed = positions[i] != positions[j];
+        }
+      }
+      if (placed) {
+        for (int i = 0; i < positions.length; i++) {
+          slots[positions[i]] = bucket.get(i);
+        }
+        return seed;
+      }
+    }
+    throw new IllegalStateException("No perfect hash separates the words " + bucket);
+  }
+
+  private int findDistinct(List<Integer> indexes, String word) {
+    for (int i : indexes) {
+      if (same(words[i], word)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private char fold(char c) {
+    if (!ignoreCase) {
+      return c;
+    }
+    if (unicode) {
+      return Character.toLowerCase(Character.toUpperCase(c));
+    }
+    return c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c;
+  }
+
+  private boolean same(String a, String b) {
+    if (a.length() != b.length()) {
+      return false;
+    }
+    for (int i = 0; i < a.length(); i++) {
+      if (fold(a.charAt(i)) != fold(b.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Hash a word
+   * @param word is the word
+   * @param basis is the initial value of the hash
+   * @return the non negative hash
+   */
+  public int hash(String word, int basis) {
+    int hash = basis;
+    for (int i = 0; i < word.length(); i++) {
+      hash = (hash ^ fold(word.charAt(i))) * PRIME;
+    }
+    return (hash ^ (hash >>> 16)) & 0x7fffffff;
+  }
+
+  /**
+   * Find a word
+   * @param word is the word to find
+   * @return the index of the word, or -1 if it is not one of the words
+   */
+  public int find(String word) {
+    if (slots.length == 0) {
+      return -1;
+    }
+    int seed = seeds[hash(word, BASIS) % seeds.length];
+    int index = slots[seed < 0 ? -seed - 1 : hash(word, seed) % slots.length];
+    return same(words[index], word) ? index : -1;
+  }
+
+  /**
+   * @return the seed of each bucket
+   */
+  public int[] getSeeds() {
+    return seeds;
+  }
+
+  /**
+   * @return the index of the word in each slot
+   */
+  public int[] getSlots() {
+    return slots;
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2013, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+ * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+ */
+package me.jaimegarza.syntax.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+
+/**
+ * The source grammar, decoded at once into a character array.  Large
+ * files are mapped in memory rather than read.<p>
+ * 
+ * Characters are read without boxing or locking, and the lexer can push back
+ * any characters, read before or not, on a stack of characters that are
+ * read again first.  The line and column are not counted per character, but
+ * computed when requested from the offset in the source, counting only the
+ * characters read since the last request.
+ * 
+ * @author jgarza
+ *
+ */
+public class SourceBuffer extends Reader {
+  private static final long MAP_SIZE = 1 << 20;
+
+  private char source[];
+  private int length;
+  private int position;
+  private char pushback[] = new char[16];
+  private int pushed;
+  private int countedPosition;
+  private int countedLines;
+
+  /**
+   * Read and decode the whole source
+   * @param channel is the source file, closed once read
+   * @param charset is the encoding of the source
+   * @throws IOException if the source cannot be read
+   */
+  public SourceBuffer(FileChannel channel, Charset charset) throws IOException {
+    try {
+      long size = channel.size();
+      ByteBuffer bytes;
+      if (size > MAP_SIZE) {
+        bytes = channel.map(MapMode.READ_ONLY, 0, size);
+      } else {
+        bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+          // keep reading
+        }
+        bytes.flip();
+      }
+      // decode allocates a new buffer, backed by an array from its start
+      CharBuffer chars = charset.decode(bytes);
+      source = chars.array();
+      length = chars.limit();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Read the next character, the last one pushed back if any
+   * @return the character, or -1 at the end of the source
+   */
+  @Override
+  public int read() {
+    if (pushed > 0) {
+      return pushback[--pushed];
+    }
+    if (position == length) {
+      return -1;
+    }
+    return source[position++];
+  }
+
+  @Override
+  public int read(char buffer[], int offset, int count) {
+    int read = 0;
+    while (pushed > 0 && read < count) {
+      buffer[offset + read++] = pushback[--pushed];
+    }
+    int copied = Math.min(count - read, length - position);
+    System.arraycopy(source, position, buffer, offset + read, copied);
+    position += copied;
+    read += copied;
+    return read == 0 && count > 0 ? -1 : read;
+  }
+
+  /**
+   * Write all the characters not read yet, the ones pushed back first, and
+   * the rest of the source in one write
+   * @param writer is where the characters are written
+   * @throws IOException if they cannot be written
+   */
+  public void writeRemaining(Writer writer) throws IOException {
+    while (pushed > 0) {
+      writer.write(pushback[--pushed]);
+    }
+    writer.write(source, position, length - position);
+    position = length;
+  }
+
+  /**
+   * Push back a character, to be read next
+   * @param c is the character
+   */
+  public void unread(char c) {
+    if (pushed == pushback.length) {
+      char larger[] = new char[pushback.length * 2];
+      System.arraycopy(pushback, 0, larger, 0, pushed);
+      pushback = larger;
+    }
+    pushback[pushed++] = c;
+  }
+
+  /**
+   * The line of the last character read.  A new line that was pushed back
+   * no longer counts.
+   * @return the line number, starting with 1
+   */
+  public int getLineNumber() {
+    for (; countedPosition < position; countedPosition++) {
+      if (source[countedPosition] == '\n') {
+        countedLines++;
+      }
+    }
+    int lines = countedLines + 1;
+    for (int i = 0; i < pushed; i++) {
+      if (pushback[i] == '\n') {
+        lines--;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * The column of the last character read from the source
+   * @return the number of characters read since the last new line
+   */
+  public int getColumnNumber() {
+    int start = position;
+    while (start > 0 && source[start - 1] != '\n') {
+      start--;
+    }
+    return position - start;
+  }
+
+  @Override
+  public void close() {
+    source = null;
+    length = 0;
+    position = 0;
+    pushed = 0;
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of symbol ids.<p>
+ * 
+ * Symbol ids are small, dense integers, so the set is kept as a bit array
+ * where the bit <i>n</i> is on when the symbol id <i>n</i> is in the set.
+ * Unions and inclusion checks are then performed a word at a time, and
+ * no boxing of the ids takes place.<p>
+ * 
+ * The words are allocated as needed, so an empty set takes no space.
+ * 
+ * @author jaimegarza@gmail.com
+ *
+ */
+public class SymbolSet {
+  private static final long NO_WORDS[] = new long[0];
+  private static final int BITS_PER_WORD = 64;
+
+  /**
+   * The bits of the set, 64 symbol ids per word
+   */
+  private long words[] = NO_WORDS;
+
+  /**
+   * Construct an empty set
+   */
+  public SymbolSet() {
+    super();
+  }
+
+  /**
+   * Construct a set with the same symbol ids as another set
+   * @param other is the set to copy
+   */
+  public SymbolSet(SymbolSet other) {
+    super();
+    words = other.words.length == 0 ? NO_WORDS : other.words.clone();
+  }
+
+  /**
+   * Make sure that the words can contain the given word index
+   * @param wordIndex is the index of the word
+   */
+  private void ensureCapacity(int wordIndex) {
+    if (wordIndex >= words.length) {
+      words = Arrays.copyOf(words, Math.max(wordIndex + 1, words.length * 2));
+    }
+  }
+
+  /**
+   * Add one symbol id to the set
+   * @param symbolId is the id to add
+   * @return true if the set changed
+   */
+  public boolean add(int symbolId) {
+    int wordIndex = symbolId / BITS_PER_WORD;
+    long bit = 1L << (symbolId % BITS_PER_WORD);
+    ensureCapacity(wordIndex);
+    if ((words[wordIndex] & bit) != 0) {
+      return false;
+    }
+    words[wordIndex] |= bit;
+    return true;
+  }
+
+  /**
+   * Merge another set into this set
+   * @param other is the set to merge from
+   * @return true if the set changed
+   */
+  public boolean addAll(SymbolSet other) {
+    long otherWords[] = other.words;
+    int length = otherWords.length;
+    while (length > 0 && otherWords[length - 1] == 0) {
+      length--;
+    }
+    if (length == 0) {
+      return false;
+    }
+    ensureCapacity(length - 1);
+    boolean changed = false;
+    for (int i = 0; i < length; i++) {
+      long merged = words[i] | otherWords[i];
+      if (merged != words[i]) {
+        words[i] = merged;
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Check if a symbol id is in the set
+   * @param symbolId is the id to check
+   * @return true if present
+   */
+  public boolean contains(int symbolId) {
+    int wordIndex = symbolId / BITS_PER_WORD;
+    if (symbolId < 0 || wordIndex >= words.length) {
+      return false;
+    }
+    return (words[wordIndex] & (1L << (symbolId % BITS_PER_WORD))) != 0;
+  }
+
+  /**
+   * Check if all the symbol ids of another set are in this set
+   * @param other is the set to check
+   * @return true if other is a subset of this set
+   */
+  public boolean containsAll(SymbolSet other) {
+    long otherWords[] = other.words;
+    for (int i = 0; i < otherWords.length; i++) {
+      long word = i < words.length ? words[i] : 0;
+      if ((otherWords[i] & ~word) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check if this set and another set have any symbol id in common
+   * @param other is the set to check
+   * @return true if the sets intersect
+   */
+  public boolean intersects(SymbolSet other) {
+    int length = Math.min(words.length, other.words.length);
+    for (int i = 0; i < length; i++) {
+      if ((words[i] & other.words[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the set has no symbol ids
+   */
+  public boolean isEmpty() {
+    for (long word : words) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of symbol ids in the set
+   */
+  public int size() {
+    int size = 0;
+    for (long word : words) {
+      size += Long.bitCount(word);
+    }
+    return size;
+  }
+
+  /**
+   * Iterate over the set, in ascending order.  Typical use is<pre>
+   *   for (int id = set.next(0); id >= 0; id = set.next(id + 1))</pre>
+   * @param fromSymbolId is the first symbol id to look at
+   * @return the first symbol id in the set that is greater or equal than
+   * fromSymbolId, or -1 if there are none.
+   */
+  public int next(int fromSymbolId) {
+    int wordIndex = fromSymbolId / BITS_PER_WORD;
+    if (wordIndex >= words.length) {
+      return -1;
+    }
+    long word = words[wordIndex] & (-1L << (fromSymbolId % BITS_PER_WORD));
+    while (true) {
+      if (word != 0) {
+        return wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+      }
+      if (++wordIndex == words.length) {
+        return -1;
+      }
+      word = words[wordIndex];
+    }
+  }
+
+  /**
+   * Remove all symbol ids from the set
+   */
+  public void clear() {
+    Arrays.fill(words, 0);
+  }
+
+  /**
+   * @see java.lang.Object#hashCode()
+   */
+  @Override
+  public int hashCode() {
+    long h = 1234;
+    for (int i = words.length; --i >= 0;) {
+      h ^= words[i] * (i + 1);
+    }
+    return (int) ((h >> 32) ^ h);
+  }
+
+  /**
+   * @see java.lang.Object#equals(java.lang.Object)
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    try {
+      SymbolSet s = (SymbolSet) obj;
+      int length = Math.max(words.length, s.words.length);
+      for (int i = 0; i < length; i++) {
+        long word = i < words.length ? words[i] : 0;
+        long otherWord = i < s.words.length ? s.words[i] : 0;
+        if (word != otherWord) {
+          return false;
+        }
+      }
+      return true;
+    } catch (NullPointerException unused) {
+      return false;
+    } catch (ClassCastException unused) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the symbol ids in the form {a, b, c}
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (int id = next(0); id >= 0; id = next(id + 1)) {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(id);
+    }
+    return sb.append("}").toString();
+  }
+}
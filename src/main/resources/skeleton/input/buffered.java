@@ -0,0 +1,221 @@
+  /* ****************************************************************
+    Java Buffered Input for generated lexers
+
+    This is not a sample program, but rather the input layer
+    to be included in the generated code with --buffered.
+    Modify at your own risk.
+
+    Copyright (c), 1985-2012 Jaime Garza
+  ***************************************************************** */
+
+  private static final int INPUT_BUFFER_SIZE = 8192;
+  private String inputString;
+  private java.nio.ByteBuffer inputBytes;
+  private java.io.Reader inputReader;
+  private java.io.IOException inputError;
+  private char inputBuffer[];
+  private char readerBuffer[];
+  private int inputPosition;
+  private int inputLimit;
+  private int inputCurrent;
+  private int inputMark = -1;
+  private int inputMarkCurrent;
+  private char inputMarkChar;
+  private int tokenStart;
+
+  /**
+   * Read the input from a string
+   */
+  public void setInput(String input) {
+    setInput(input, null, null);
+    inputLimit = input.length();
+  }
+
+  /**
+   * Read the input from the first length characters of an array, which is
+   * used in place and not copied.  The array is only read, never written
+   */
+  public void setInput(char input[], int length) {
+    setInput(null, null, null);
+    inputBuffer = input;
+    inputLimit = length;
+  }
+
+  /**
+   * Read the input from bytes holding one character each, like an ascii or
+   * latin-1 file mapped with FileChannel.map
+   */
+  public void setInput(java.nio.ByteBuffer input) {
+    setInput(null, input, null);
+    inputPosition = input.position();
+    inputCurrent = inputPosition;
+    tokenStart = inputPosition;
+    inputLimit = input.limit();
+  }
+
+  /**
+   * Read the input from a reader, in blocks kept in a buffer that is reused
+   * from one input to the next
+   */
+  public void setInput(java.io.Reader input) {
+    setInput(null, null, input);
+    if (readerBuffer == null) {
+      readerBuffer = new char[INPUT_BUFFER_SIZE];
+    }
+    inputBuffer = readerBuffer;
+  }
+
+  private void setInput(String string, java.nio.ByteBuffer bytes, java.io.Reader reader) {
+    inputString = string;
+    inputBytes = bytes;
+    inputReader = reader;
+    inputBuffer = null;
+    inputError = null;
+    inputPosition = 0;
+    inputLimit = 0;
+    inputCurrent = 0;
+    inputMark = -1;
+    tokenStart = 0;
+  }
+
+  /**
+   * @return the error that ended the reading of the input, or null
+   */
+  public java.io.IOException getInputError() {
+    return inputError;
+  }
+
+  /**
+   * Start the text of the token at the current character, dropping the
+   * mark.  parserElement calls it on entry; call it again once the blanks
+   * before the token have been skipped
+   */
+  void startToken() {
+    tokenStart = inputCurrent;
+    inputMark = -1;
+  }
+
+  /**
+   * @return the offset of the token in the input String, char array or
+   * ByteBuffer, or in the internal buffer of a Reader
+   */
+  public int getTokenOffset() {
+    return tokenStart;
+  }
+
+  /**
+   * @return the number of characters of the token, which ends before the
+   * current character
+   */
+  public int getTokenLength() {
+    return inputCurrent - tokenStart;
+  }
+
+  /**
+   * @return the character of the token at the given index
+   */
+  public char getTokenChar(int index) {
+    int position = tokenStart + index;
+    if (inputString != null) {
+      return inputString.charAt(position);
+    }
+    if (inputBytes != null) {
+      return (char) (inputBytes.get(position) & 0xff);
+    }
+    return inputBuffer[position];
+  }
+
+  /**
+   * @return a copy of the text of the token, for the actions that keep it
+   */
+  public String getTokenText() {
+    if (inputString != null) {
+      return inputString.substring(tokenStart, inputCurrent);
+    }
+    if (inputBytes != null) {
+      char text[] = new char[inputCurrent - tokenStart];
+      for (int i = 0; i < text.length; i++) {
+        text[i] = (char) (inputBytes.get(tokenStart + i) & 0xff);
+      }
+      return new String(text);
+    }
+    return new String(inputBuffer, tokenStart, inputCurrent - tokenStart);
+  }
+
+  /**
+   * Remember the current character and input position for resetInput.  The
+   * mark lasts until the next token is requested
+   */
+  void markInput() {
+    inputMark = inputPosition;
+    inputMarkCurrent = inputCurrent;
+    inputMarkChar = currentChar;
+  }
+
+  /**
+   * Go back to the character and input position remembered by markInput
+   */
+  void resetInput() {
+    if (inputMark >= 0) {
+      inputPosition = inputMark;
+      inputCurrent = inputMarkCurrent;
+      currentChar = inputMarkChar;
+    }
+  }
+
+  /**
+   * Get the next character of the input, or EOS at its end
+   */
+  private char getNextChar(boolean initialize) {
+    if (inputPosition >= inputLimit && !fillInput()) {
+      inputCurrent = inputPosition;
+      return (char) EOS;
+    }
+    inputCurrent = inputPosition;
+    if (inputString != null) {
+      return inputString.charAt(inputPosition++);
+    }
+    if (inputBytes != null) {
+      return (char) (inputBytes.get(inputPosition++) & 0xff);
+    }
+    return inputBuffer[inputPosition++];
+  }
+
+  /**
+   * Read the next block of a reader, keeping the characters of the token
+   * @return false at the end of the input
+   */
+  private boolean fillInput() {
+    if (inputReader == null || inputError != null) {
+      return false;
+    }
+    int keep = tokenStart;
+    if (keep > 0) {
+      System.arraycopy(inputBuffer, keep, inputBuffer, 0, inputLimit - keep);
+      inputLimit -= keep;
+      inputPosition -= keep;
+      inputCurrent -= keep;
+      tokenStart = 0;
+      if (inputMark >= 0) {
+        inputMark -= keep;
+        inputMarkCurrent -= keep;
+      }
+    }
+    if (inputLimit == inputBuffer.length) {
+      char buffer[] = new char[inputBuffer.length * 2];
+      System.arraycopy(inputBuffer, 0, buffer, 0, inputLimit);
+      readerBuffer = buffer;
+      inputBuffer = buffer;
+    }
+    try {
+      int count = inputReader.read(inputBuffer, inputLimit, inputBuffer.length - inputLimit);
+      if (count <= 0) {
+        return false;
+      }
+      inputLimit += count;
+      return true;
+    } catch (java.io.IOException e) {
+      inputError = e;
+      return false;
+    }
+  }
@@ -19,7 +19,11 @@ CONST
 
 (* Global variables *)
 VAR
+{$IFDEF STACK_GROWS}
+    sStxStack   : Array of integer;                 (* SState stack. Internal use                     *)
+{$ELSE}
     sStxStack   : Array[0..STACK_DEPTH] of integer; (* SState stack. Internal use                     *)
+{$ENDIF}
     StxSym      : LongInt;                          (* Actual scanner symbol. Internal usage          *)
     StxState    : integer;                          (* Current automaton state. Internal usage        *)
     StxErrors   : Integer;                          (* Counts the number of errors.  User can read    *)
@@ -72,18 +76,26 @@ END;
 *)
 FUNCTION StxAction(state:INTEGER; symbol:LONGINT) : LONGINT;
 VAR
-    position : INTEGER;
-    i        : INTEGER;
+    low    : INTEGER;
+    high   : INTEGER;
+    middle : INTEGER;
 BEGIN
-    position := StxParsingTable[state].position;
-    
-    { Look in actions if there is a transaction with the token }
-    for i :=0 TO StxParsingTable[state].elements-1 DO
-      if   StxActionTable[position+i].symbol = symbol
-      then begin
-           StxAction := StxActionTable[position+i].state;
-           exit;
-           end;
+    low := StxParsingTable[state].position;
+    high := low + StxParsingTable[state].elements - 1;
+
+    { Look by bisection in the actions, sorted by token }
+    while low <= high do
+        begin
+        middle := (low + high) div 2;
+        if   StxActionTable[middle].symbol = symbol
+        then begin
+             StxAction := StxActionTable[middle].state;
+             exit;
+             end;
+        if   StxActionTable[middle].symbol < symbol
+        then low := middle + 1
+        else high := middle - 1;
+        end;
     { otherwise }
     StxAction := StxParsingTable[state].defa;
 END;
@@ -94,21 +106,28 @@ END;
 *)
 FUNCTION StxGoto(state:INTEGER; symbol:INTEGER): INTEGER;
 VAR
-    position: INTEGER;
+    low    : INTEGER;
+    high   : INTEGER;
+    middle : INTEGER;
 BEGIN
-    { Search in gotos if there is a state transition }
-    position := symbol;
-    while StxGotoTable[position].origin <> -1 do
+    low := symbol + 1;
+    high := symbol - StxGotoTable[symbol].origin - 1;
+
+    { Search by bisection in the gotos, sorted by origin after the default }
+    while low <= high do
         begin
-        if   StxGotoTable[position].origin = state
+        middle := (low + high) div 2;
+        if   StxGotoTable[middle].origin = state
         then begin
-             StxGoTo := StxGotoTable[position].destination;
+             StxGoTo := StxGotoTable[middle].destination;
              exit;
              end;
-        position := position + 1;
+        if   StxGotoTable[middle].origin < state
+        then low := middle + 1
+        else high := middle - 1;
         end;
     { default }
-    StxGoTo := StxGotoTable[position].destination;
+    StxGoTo := StxGotoTable[symbol].destination;
 END;
 
 (*
@@ -144,12 +163,29 @@ BEGIN
     ELSE StxErrorMessage := 'Syntax error';
 END;
 
+(*
+   Doubles the state and value stacks when STACK_GROWS is defined.
+   Returns FALSE if the stacks cannot grow
+*)
+FUNCTION StxGrowStacks: BOOLEAN;
+BEGIN
+{$IFDEF STACK_GROWS}
+    IF   Length(sStxStack) = 0
+    THEN SetLength(sStxStack, STACK_DEPTH+1)
+    ELSE SetLength(sStxStack, Length(sStxStack) * 2);
+    SetLength(StxStack, Length(sStxStack));
+    StxGrowStacks := TRUE;
+{$ELSE}
+    StxGrowStacks := FALSE;
+{$ENDIF}
+END;
+
 (*
    Does a shift operation.  Puts a new state on the top of the stack 
 *)
 FUNCTION StxShift(sym:LongInt; state:integer):BOOLEAN;
 BEGIN
-    IF   pStxStack >= STACK_DEPTH-1
+    IF   (pStxStack >= High(sStxStack)-1) AND NOT StxGrowStacks
     THEN StxShift := FALSE
     ELSE BEGIN
          pStxStack := pStxStack + 1;
@@ -172,7 +208,8 @@ BEGIN
 {$IFDEF DEBUG}
     writeln('Reduce on rule ', rule, ' with symbol ', sym);
 {$ENDIF}
-    IF   Not StxCode(rule)
+    IF   ((pStxStack >= High(sStxStack)-1) AND (StxGrammarTable[rule].reductions = 0) AND NOT StxGrowStacks)
+         OR Not StxCode(rule)
     THEN StxReduce := FALSE
     ELSE BEGIN
          pStxStack := pStxStack - StxGrammarTable[rule].reductions;
@@ -263,6 +300,10 @@ FUNCTION StxParse: BOOLEAN;
 VAR
     action: LongInt;
 BEGIN
+{$IFDEF STACK_GROWS}
+    IF   Length(sStxStack) = 0
+    THEN StxGrowStacks;
+{$ENDIF}
     pStxStack := 0;
     sStxStack[0] := 0;
     StxChar := StxNextChar;
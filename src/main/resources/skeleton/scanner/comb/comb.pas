@@ -0,0 +1,418 @@
+  (*
+   *
+   * Begin of Skeleton
+   *
+   *)
+
+  (* ****************************************************************
+    Pascal Skeleton Parser FOR comb tables
+
+    This is not a sample program, but rather the parser skeleton
+    to be included in the generated code.
+    Modify at your own risk.
+
+    Copyright (c), 1985-2012 Jaime Garza
+  ***************************************************************** *)
+CONST
+  ERROR_FAIL = 0;
+  ERROR_RE_ATTEMPT = 1;
+
+(* Global variables *)
+VAR
+{$IFDEF STACK_GROWS}
+    sStxStack   : Array of integer;                 (* SState stack. Internal use                     *)
+{$ELSE}
+    sStxStack   : Array[0..STACK_DEPTH] of integer; (* SState stack. Internal use                     *)
+{$ENDIF}
+    StxSym      : LongInt;                          (* Actual scanner symbol. Internal usage          *)
+    StxState    : integer;                          (* Current automaton state. Internal usage        *)
+    StxErrors   : Integer;                          (* Counts the number of errors.  User can read    *)
+    StxErrorFlag: integer;                          (* Recuperation machinery state. Internal usage   *)
+
+(* These functions must be provided by the user *)
+FUNCTION StxError(StxState:INTEGER; StxSym:INTEGER; pStxStack:INTEGER; aMessage:STRING):INTEGER; FORWARD;
+{$IFDEF DEBUG}
+FUNCTION StxToString(value:TSTACK):STRING; FORWARD;
+{$ENDIF}
+
+(*
+    returns the name of a token, given the token number
+*)
+FUNCTION StxGetTokenName(token:INTEGER) : STRING;
+VAR
+    i : INTEGER;
+BEGIN
+    FOR i := 0 TO TOKENS-1 DO
+        BEGIN
+        IF   StxTokenDefs[i].token = token
+        THEN BEGIN
+             StxGetTokenName := StxTokenDefs[i].name;
+             EXIT;
+             END;
+        END;
+    StxGetTokenName := 'UNKNOWN TOKEN';
+END;
+
+(*
+    Find the index of a token
+*)
+FUNCTION StxGetTokenIndex(token:LONGINT) : INTEGER;
+VAR
+    i : INTEGER;
+BEGIN
+    FOR i := 0 TO TOKENS-1 DO
+        BEGIN
+        IF StxTokenDefs[i].token = token 
+        THEN BEGIN
+             StxGetTokenIndex := i;
+             EXIT;
+             END;
+        END;
+    StxGetTokenIndex := -1;
+END;
+
+(*
+  This routine maps a state and a token to a new state on the action table  
+*)
+FUNCTION StxTokenColumn(symbol:LONGINT) : INTEGER;
+VAR
+    entry : INTEGER;
+BEGIN
+    entry := symbol AND (TOKEN_HASH_SIZE - 1);
+    while StxTokenHash[entry] <> -1 DO
+      BEGIN
+      if   StxTokens[StxTokenHash[entry]] = symbol
+      then begin
+           StxTokenColumn := StxTokenHash[entry];
+           exit;
+           end;
+      entry := (entry + 1) AND (TOKEN_HASH_SIZE - 1);
+      END;
+    StxTokenColumn := -1;
+END;
+
+(*
+  This routine maps a state and a token to a new state on the action table  
+*)
+FUNCTION StxAction(state:INTEGER; symbol:LONGINT) : LONGINT;
+VAR
+    base   : INTEGER;
+    column : INTEGER;
+BEGIN
+    base := StxParsingTable[state].position;
+    column := StxTokenColumn(symbol);
+    
+    { The entry is an action of the state if it is checked with its base }
+    if   (column >= 0) AND (base + column < COMB_SIZE)
+    then if   StxActionCheck[base + column] = base
+         then begin
+              StxAction := StxActionNext[base + column];
+              exit;
+              end;
+    { otherwise }
+    StxAction := StxParsingTable[state].defa;
+END;
+
+(*
+  This routine maps a origin state to a destination state
+  using the symbol position 
+*)
+FUNCTION StxGoto(state:INTEGER; symbol:INTEGER): INTEGER;
+VAR
+    low    : INTEGER;
+    high   : INTEGER;
+    middle : INTEGER;
+BEGIN
+    low := symbol + 1;
+    high := symbol - StxGotoTable[symbol].origin - 1;
+
+    { Search by bisection in the gotos, sorted by origin after the default }
+    while low <= high do
+        begin
+        middle := (low + high) div 2;
+        if   StxGotoTable[middle].origin = state
+        then begin
+             StxGoTo := StxGotoTable[middle].destination;
+             exit;
+             end;
+        if   StxGotoTable[middle].origin < state
+        then low := middle + 1
+        else high := middle - 1;
+        end;
+    { default }
+    StxGoTo := StxGotoTable[symbol].destination;
+END;
+
+(*
+  This routine prints the contents of the parsing stack 
+*)
+{$IFDEF DEBUG}
+PROCEDURE StxPrintStack;
+VAR
+    i:integer;
+BEGIN
+    writeln('Stack pointer = ', pStxStack);
+    write('States: [');
+    FOR i:=0 to pStxStack DO
+        write(sStxStack[i], ' ');
+    writeln(']<--Top Of Stack (', pStxStack, ')');
+    write('Values: [');
+    FOR i:=0 to pStxStack DO
+        write('|', StxToString(StxStack[i]),'| ');
+    writeln(']<--Top Of Stack (', pStxStack, ')');
+END;
+{$ENDIF}
+
+(*
+    Get the error message FOR the current state
+*)
+FUNCTION StxErrorMessage: STRING;
+VAR
+    msgIndex : INTEGER;
+BEGIN
+    msgIndex := StxParsingTable[StxState].msg;
+    IF   msgIndex >= 0
+    THEN StxErrorMessage := StxErrorTable[msgIndex]
+    ELSE StxErrorMessage := 'Syntax error';
+END;
+
+(*
+   Doubles the state and value stacks when STACK_GROWS is defined.
+   Returns FALSE if the stacks cannot grow
+*)
+FUNCTION StxGrowStacks: BOOLEAN;
+BEGIN
+{$IFDEF STACK_GROWS}
+    IF   Length(sStxStack) = 0
+    THEN SetLength(sStxStack, STACK_DEPTH+1)
+    ELSE SetLength(sStxStack, Length(sStxStack) * 2);
+    SetLength(StxStack, Length(sStxStack));
+    StxGrowStacks := TRUE;
+{$ELSE}
+    StxGrowStacks := FALSE;
+{$ENDIF}
+END;
+
+(*
+   Does a shift operation.  Puts a new state on the top of the stack 
+*)
+FUNCTION StxShift(sym:LongInt; state:integer):BOOLEAN;
+BEGIN
+    IF   (pStxStack >= High(sStxStack)-1) AND NOT StxGrowStacks
+    THEN StxShift := FALSE
+    ELSE BEGIN
+         pStxStack := pStxStack + 1;
+         sStxStack[pStxStack] := state;
+         StxStack[pStxStack] := StxValue;
+         StxState := state;
+         StxShift := TRUE;
+{$IFDEF DEBUG}
+         writeln('Shift to ', state, ' with ', sym);
+         StxPrintStack;
+{$ENDIF}
+         END;
+END;
+
+(*
+    Recognizes a rule an removes all its elements from the stack
+*)
+FUNCTION StxReduce(sym:LongInt; rule:integer):BOOLEAN;
+BEGIN
+{$IFDEF DEBUG}
+    writeln('Reduce on rule ', rule, ' with symbol ', sym);
+{$ENDIF}
+    IF   ((pStxStack >= High(sStxStack)-1) AND (StxGrammarTable[rule].reductions = 0) AND NOT StxGrowStacks)
+         OR Not StxCode(rule)
+    THEN StxReduce := FALSE
+    ELSE BEGIN
+         pStxStack := pStxStack - StxGrammarTable[rule].reductions;
+         sStxStack[pStxStack+1] :=
+            StxGoto(sStxStack[pStxStack], StxGrammarTable[rule].symbol);
+         pStxStack := pStxStack+1;
+         StxState := sStxStack[pStxStack];
+         StxReduce := TRUE;
+{$IFDEF DEBUG}
+         StxPrintStack;
+{$ENDIF}
+         END;
+END;
+
+(*
+    Recover from a syntax error removing stack states/symbols, and removing
+    input tokens.  The array StxRecover contains the tokens that bound
+    the error 
+*)
+FUNCTION StxRecover: BOOLEAN;
+VAR
+    i, acc : INTEGER;
+    found  : BOOLEAN;
+BEGIN
+    StxRecover := TRUE;
+    CASE StxErrorFlag OF
+        0, 1, 2: (* three attempts before dropping the symbol *)
+            BEGIN
+            IF   StxErrorFlag = 0
+            THEN BEGIN
+                 IF   StxError(StxState, StxSym, pStxStack, StxErrorMessage()) = ERROR_FAIL 
+                 THEN BEGIN
+                      StxRecover := FALSE;
+                      EXIT;
+                      END;
+                 END;
+
+            StxErrorFlag := 3; (* remove the symbol *)
+
+            WHILE pStxStack >= 0 DO
+                BEGIN
+                (* Look if the state on the stack's top has a transition with one of
+                  the recovering elements in StxRecoverTable *)
+                found := FALSE;
+                FOR i:=0 to RECOVERS-1 DO
+                    BEGIN
+                    acc := StxAction(StxState, StxRecoverTable[i]);
+                    IF   acc > 0 (* shift valido *)
+                    THEN BEGIN
+                         StxRecover := StxShift(StxRecoverTable[i], acc);
+                         found := TRUE;
+                         EXIT;
+                         END;
+                    END;
+                IF   NOT found
+                THEN BEGIN
+{$IFDEF DEBUG}
+                     writeln('Recover removing state ', StxState,
+                             ' and go to state ', sStxStack[pStxStack-1]);
+{$ENDIF}
+                     pStxStack := pStxStack - 1;
+                     StxState := sStxStack[pStxStack];
+                     END; (*IF*)
+                END; (*WHILE*)
+                pStxStack := 0;
+                StxRecover := FALSE;
+            END; (*CASE 0, 1 y 2*)
+
+        3: (* I need to drop the current token *)
+            BEGIN
+{$IFDEF DEBUG}
+            writeln('Recover removing symbol ', StxSym);
+{$ENDIF}
+            IF   StxSym = 0 (* End of input string *)
+            THEN StxRecover := FALSE
+            ELSE BEGIN
+                 StxSym := StxLexer;
+                 StxRecover := TRUE;
+                 END;
+            END; (* CASE *)
+    END; (* CASE *)
+END; (* StxRecover *)
+
+(*
+  Initialize the scanner
+*)
+PROCEDURE StxInit;
+BEGIN
+{$IFDEF STACK_GROWS}
+    IF   Length(sStxStack) = 0
+    THEN StxGrowStacks;
+{$ENDIF}
+    pStxStack := 0;
+    sStxStack[0] := 0;
+    StxState := 0;
+END;
+  
+(*
+    Main parser routine, uses Shift, Reduce and Recover 
+*)
+FUNCTION StxParse(symbol:LONGINT; value:TSTACK): INTEGER;
+VAR
+    action: LongInt;
+BEGIN
+    StxSym := StxGetTokenIndex(symbol);
+    StxValue := value;
+
+{$IFDEF DEBUG}
+        writeln('Starting to parse symbol ', symbol, '(', StxSym,')');
+        StxPrintStack();
+{$ENDIF}
+    WHILE TRUE do (* forever with break and return below *)
+        BEGIN
+        action := StxAction(StxState, symbol);
+{$IFDEF DEBUG}
+        writeln('Action: ', action);
+{$ENDIF}
+        IF   action = ACCEPT
+        THEN BEGIN
+{$IFDEF DEBUG}
+             writeln('Accepted');
+{$ENDIF}
+             StxParse := ACCEPTED;
+             EXIT;
+             END
+        ELSE IF   action > 0
+        THEN BEGIN
+             IF   Not StxShift(StxSym, action)
+             THEN BEGIN
+                  StxParse := INTERNAL_ERROR;
+                  EXIT;
+             END;
+             StxParse := SHIFTED;
+             EXIT;
+             END
+        ELSE IF   action < 0
+        THEN BEGIN
+             IF   Not StxReduce(StxSym, -action)
+             THEN BEGIN
+                  StxParse := INTERNAL_ERROR;
+                  EXIT;
+                  END;
+              END
+        ELSE BEGIN (* error *)
+             StxParse := PARSING_ERROR;
+             EXIT;
+             END;
+        END; (* while *)
+END;
+
+TYPE
+  StxTokenArray = ARRAY OF INTEGER;
+  
+(*
+ give me the available actions that can be taken.  I am also returning reduces.
+*)
+FUNCTION StxValidTokens(VAR count:INTEGER) : StxTokenArray;
+VAR
+  base    : INTEGER;
+  index   : INTEGER;
+  column  : INTEGER;
+  actions : StxTokenArray;
+BEGIN
+    base := StxParsingTable[StxState].position;
+
+    SetLength(actions, StxParsingTable[StxState].elements);
+    index := 0;
+{$IFDEF DEBUG}
+    write ('Valid actions:[');
+{$ENDIF}
+    for column := 0 TO TOKENS-1 DO
+        if   (base + column < COMB_SIZE) AND (StxActionCheck[base + column] = base)
+        then BEGIN
+{$IFDEF DEBUG}
+             if index > 0 then write(', ');
+             write(StxTokens[column]);
+{$ENDIF}
+             actions[index] := StxTokens[column];
+             index := index + 1;
+             END;
+{$IFDEF DEBUG}
+    writeln (']');
+{$ENDIF}
+    count := StxParsingTable[StxState].elements;
+    StxValidTokens := actions;
+END;
+
+FUNCTION StxGetResult : TSTACK;
+BEGIN
+    StxGetResult := StxStack[pStxStack];
+END;
+
+(* End of parser *)
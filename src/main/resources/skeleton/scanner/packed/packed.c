@@ -27,7 +27,13 @@
 /* Global variables */
 TSTACK            StxValue;               /* Scanner OUT value. Intended for scanner writer */
 char              StxChar;                /* The curent character                           */
+#ifdef STACK_GROWS
+int              *sStxStack = NULL;       /* State stack. Internal use                      */
+int               StxStackSize = 0;       /* Allocated depth of the stacks. Internal use    */
+#else
 int               sStxStack[STACK_DEPTH]; /* State stack. Internal use                      */
+#define StxStackSize STACK_DEPTH
+#endif
 unsigned long int StxSym;                 /* Actual scanner symbol. Internal usage          */
 int               StxState;               /* Current automaton state. Internal usage        */
 int               StxErrors;              /* Counts the number of errors.  User can read    */
@@ -49,13 +55,20 @@ char * StxToString(TSTACK value);
 */
 int StxAction(int state, int sym)
 {
-    int position = StxParsingTable[state].position;
-    int i;
-
-    /* Look in actions if there is a transaction with the token */
-    for(i=0; i < StxParsingTable[state].elements; i++)
-        if(StxActionTable[position+i].symbol == sym)
-            return StxActionTable[position+i].state;
+    int low = StxParsingTable[state].position;
+    int high = low + StxParsingTable[state].elements - 1;
+    int middle;
+
+    /* Look by bisection in the actions, sorted by token */
+    while(low <= high) {
+        middle = (low + high) / 2;
+        if(StxActionTable[middle].symbol == sym)
+            return StxActionTable[middle].state;
+        else if(StxActionTable[middle].symbol < sym)
+            low = middle + 1;
+        else
+            high = middle - 1;
+    }
     /* otherwise */
     return StxParsingTable[state].defa;
 }
@@ -66,10 +79,20 @@ int StxAction(int state, int sym)
 */
 int StxGoto(int state, int position)
 {
-    /* Search in gotos if there is a state transition */
-    for(; StxGotoTable[position].origin != -1; position++)
-        if(StxGotoTable[position].origin == state)
-            return StxGotoTable[position].destination;
+    int low = position + 1;
+    int high = position - StxGotoTable[position].origin - 1;
+    int middle;
+
+    /* Search by bisection in the gotos, sorted by origin after the default */
+    while(low <= high) {
+        middle = (low + high) / 2;
+        if(StxGotoTable[middle].origin == state)
+            return StxGotoTable[middle].destination;
+        else if(StxGotoTable[middle].origin < state)
+            low = middle + 1;
+        else
+            high = middle - 1;
+    }
     /* default */
     return StxGotoTable[position].destination;
 }
@@ -104,12 +127,37 @@ char * StxErrorMessage() {
     }
 }
 
+/*
+   Doubles the state and value stacks when STACK_GROWS is defined.
+   Returns 0 if the stacks cannot grow
+*/
+int StxGrowStacks(void)
+{
+#ifdef STACK_GROWS
+    int size = StxStackSize == 0 ? STACK_DEPTH : StxStackSize * 2;
+    int *states = (int *) realloc(sStxStack, size * sizeof(int));
+    TSTACK *values;
+
+    if(states == NULL)
+        return 0;
+    sStxStack = states;
+    values = (TSTACK *) realloc(StxStack, size * sizeof(TSTACK));
+    if(values == NULL)
+        return 0;
+    StxStack = values;
+    StxStackSize = size;
+    return 1;
+#else
+    return 0;
+#endif
+}
+
 /*
    Does a shift operation.  Puts a new state on the top of the stack 
 */
 int StxShift(int sym, int state)
 {
-    if(pStxStack >= 149)
+    if(pStxStack >= StxStackSize-1 && StxGrowStacks() == 0)
         return 0;
 
     sStxStack[++pStxStack] = state;
@@ -130,6 +178,8 @@ int StxReduce(int sym, int rule)
 #ifdef DEBUG
     printf("Reduce on rule %d with symbol %d\n", rule, sym);
 #endif
+    if(pStxStack >= StxStackSize-1 && StxGrammarTable[rule].reductions == 0 && StxGrowStacks() == 0)
+        return 0;
     if(!StxCode(rule))
         return 0;
     pStxStack -= StxGrammarTable[rule].reductions;
@@ -193,6 +243,10 @@ int StxRecover(void)
   Initialize the scanner
 */
 void StxInit() {
+#ifdef STACK_GROWS
+    if(StxStackSize == 0 && StxGrowStacks() == 0)
+        return;
+#endif
     pStxStack = 0;
     sStxStack[0] = 0;
     StxState = 0;
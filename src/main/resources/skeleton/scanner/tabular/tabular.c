@@ -25,7 +25,13 @@
 /* Global variables */
 TSTACK            StxValue;               /* Scanner OUT value. Intended for scanner writer */
 char              StxChar;                /* The curent character                           */
+#ifdef STACK_GROWS
+int              *sStxStack = NULL;       /* State stack. Internal use                      */
+int               StxStackSize = 0;       /* Allocated depth of the stacks. Internal use    */
+#else
 int               sStxStack[STACK_DEPTH]; /* State stack. Internal use                      */
+#define StxStackSize STACK_DEPTH
+#endif
 unsigned long int StxSym;                 /* Actual scanner symbol. Internal usage          */
 int               StxState;               /* Current automaton state. Internal usage        */
 int               StxErrors;              /* Counts the number of errors.  User can read    */
@@ -91,12 +97,37 @@ char * StxErrorMessage() {
     }
 }
 
+/*
+   Doubles the state and value stacks when STACK_GROWS is defined.
+   Returns 0 if the stacks cannot grow
+*/
+int StxGrowStacks(void)
+{
+#ifdef STACK_GROWS
+    int size = StxStackSize == 0 ? STACK_DEPTH : StxStackSize * 2;
+    int *states = (int *) realloc(sStxStack, size * sizeof(int));
+    TSTACK *values;
+
+    if(states == NULL)
+        return 0;
+    sStxStack = states;
+    values = (TSTACK *) realloc(StxStack, size * sizeof(TSTACK));
+    if(values == NULL)
+        return 0;
+    StxStack = values;
+    StxStackSize = size;
+    return 1;
+#else
+    return 0;
+#endif
+}
+
 /*
    Does a shift operation.  Puts a new state on the top of the stack 
 */
 int StxShift(int sym, int state)
 {
-    if(pStxStack >= STACK_DEPTH-1)
+    if(pStxStack >= StxStackSize-1 && StxGrowStacks() == 0)
         return 0;
 
     sStxStack[++pStxStack] = state;
@@ -117,6 +148,8 @@ int StxReduce(int sym, int rule)
 #ifdef DEBUG
     printf("Reduce on rule %d with symbol %d\n", rule, sym);
 #endif
+    if(pStxStack >= StxStackSize-1 && StxGrammarTable[rule].reductions == 0 && StxGrowStacks() == 0)
+        return 0;
     if(!StxCode(rule))
         return 0;
     pStxStack -= StxGrammarTable[rule].reductions;
@@ -180,6 +213,10 @@ int StxRecover(void)
   Initialize the scanner
 */
 void StxInit() {
+#ifdef STACK_GROWS
+    if(StxStackSize == 0 && StxGrowStacks() == 0)
+        return;
+#endif
     pStxStack = 0;
     sStxStack[0] = 0;
     StxState = 0;
@@ -24,6 +24,8 @@
   int            errorCount;
   int            errorFlag;
   boolean        verbose = false;
+  private StackElement recycledValues[] = RECYCLE_VALUES ? new StackElement[STACK_DEPTH+1] : null;
+  private int    recycledCount;
 
   /**
    * Change the verbose flag
@@ -45,10 +47,27 @@
    * @param symbol is the given symbol to find (if not found, defa will be used
    */
   private int parserAction(int state, int symbol) {
-    int index = getTokenIndex(symbol);
+    int index = getTokenColumn(symbol);
     return parsingTable[state][index];
   }
 
+  /**
+   * This routine finds the column of a token in the hash of tokens
+   * @param symbol is the token to find
+   * @return the column, or -1 if not a token
+   */
+  private int getTokenColumn(int symbol) {
+    int entry = symbol & (TOKEN_HASH_SIZE - 1);
+
+    while(tokenHash[entry] != -1) {
+      if(tokenDefs[tokenHash[entry]].token == symbol) {
+        return tokenHash[entry];
+      }
+      entry = (entry + 1) & (TOKEN_HASH_SIZE - 1);
+    }
+    return -1;
+  }
+
   /**
    * This routine maps a origin state to a destination state
    * using the symbol position
@@ -78,16 +97,84 @@
     System.out.println("<--Top Of Stack (" + stackTop + ")\n");
   }
 
+  /**
+   * Get a stack element popped by a reduction, to hold the value of a
+   * new token.  A recycled element keeps the fields of its older value
+   * until they are assigned.
+   * @return the element, or null if none is available
+   */
+  StackElement recycledStackElement() {
+    if(recycledCount == 0) {
+      return null;
+    }
+    StackElement element = recycledValues[--recycledCount];
+    recycledValues[recycledCount] = null;
+    return element;
+  }
+
+  /**
+   * Keep an element that is no longer in the stack for recycledStackElement
+   */
+  private void recycleStackElement(StackElement element) {
+    if(element != null && recycledCount < recycledValues.length) {
+      recycledValues[recycledCount++] = element;
+    }
+  }
+
+  /**
+   * Recycle the elements popped by a reduction.  The element above the
+   * result is left in place, as rules without elements assign to it,
+   * unless the rule made it the result.
+   * @param result is the position of the result of the rule
+   * @param top is the top of the stack before the reduction
+   */
+  private void recycleStackElements(int result, int top) {
+    for(int i = result+2; i <= top; i++) {
+      if(stack[i] != stack[result]) {
+        recycleStackElement(stack[i]);
+      }
+      stack[i] = null;
+    }
+    if(result+1 <= top && stack[result+1] == stack[result]) {
+      stack[result+1] = null;
+    }
+  }
+
+  /**
+   * Doubles the state and value stacks when STACK_GROWS is set
+   * @return false if the stacks cannot grow
+   */
+  private boolean growStacks() {
+    if(!STACK_GROWS) {
+      return false;
+    }
+    int newStateStack[] = new int[stateStack.length * 2];
+    StackElement newStack[] = new StackElement[stack.length * 2];
+    System.arraycopy(stateStack, 0, newStateStack, 0, stateStack.length);
+    System.arraycopy(stack, 0, newStack, 0, stack.length);
+    stateStack = newStateStack;
+    stack = newStack;
+    if(RECYCLE_VALUES) {
+      StackElement newRecycledValues[] = new StackElement[stack.length + 1];
+      System.arraycopy(recycledValues, 0, newRecycledValues, 0, recycledCount);
+      recycledValues = newRecycledValues;
+    }
+    return true;
+  }
+
   /**
    * Does a shift operation.  Puts a new state on the top of the stack
    * @param sym is the symbol causing the shift
    * @param state is the current state
    */
   private int parserShift(int sym, int state) {
-    if(stackTop >= STACK_DEPTH-1) {
+    if(stackTop >= stateStack.length-1 && !growStacks()) {
       return 0;
     }
 
+    if(RECYCLE_VALUES && stack[stackTop+1] != lexicalValue) {
+      recycleStackElement(stack[stackTop+1]);
+    }
     stateStack[++stackTop] = state;
     stack[stackTop] = lexicalValue;
     this.state = state;
@@ -107,9 +194,15 @@
     if (isVerbose()) {
       System.out.println("Reduce on rule " + rule + " with symbol " + sym);
     }
+    if(stackTop >= stateStack.length-1 && grammarTable[rule].reductions == 0 && !growStacks()) {
+      return 0;
+    }
     if(generateCode(rule) == false) {
       return 0;
     }
+    if(RECYCLE_VALUES) {
+      recycleStackElements(stackTop - grammarTable[rule].reductions + 1, stackTop);
+    }
     stackTop -= grammarTable[rule].reductions;
     stateStack[stackTop+1] =
         parserGoto(stateStack[stackTop], grammarTable[rule].symbol);
@@ -188,13 +281,30 @@
   }
 
   /**
-   * initialize the parser.  Caller (or constructor) must call it
+   * Return the parser to its initial state, so that the same instance
+   * can take another input without allocating its stacks again.  An
+   * instance is not thread safe: keep one per thread, for example in a
+   * ThreadLocal, and reset it between inputs.
    */
-  public void init() {
+  public void reset() {
+    for(int i = 0; i < stack.length; i++) {
+      if(RECYCLE_VALUES && stack[i] != lexicalValue) {
+        recycleStackElement(stack[i]);
+      }
+      stack[i] = null;
+    }
     stackTop = 0;
     stateStack[0] = 0;
-    stack[0] = null;
     state = 0;
+    errorFlag = 0;
+    errorCount = 0;
+  }
+
+  /**
+   * initialize the parser.  Caller (or constructor) must call it
+   */
+  public void init() {
+    reset();
   }
   
   public static final int ACCEPTED = 1;
@@ -275,10 +385,9 @@
    * @returns the name of a token, given the token number
    */
   public String getTokenName(int token) {
-    for (int i = 0; i < tokenDefs.length; i++) {
-      if (tokenDefs[i].token == token) {
-        return tokenDefs[i].name;
-        }
+    int index = getTokenColumn(token);
+    if (index >= 0) {
+      return tokenDefs[index].name;
     }
     if (token < 256) {
       return "\'" + (char) token + "\'";
@@ -292,12 +401,7 @@
    * @returns the name of a token, given the token number
    */
   public int getTokenIndex(int token) {
-    for (int i = 0; i < tokenDefs.length; i++) {
-      if (tokenDefs[i].token == token) {
-        return i;
-      }
-    }
-    return -1;
+    return getTokenColumn(token);
   }
 
   /**
@@ -312,23 +416,22 @@
   }
 
   int findReservedWord(String word) {
-    for (int i = 0; i < tokenDefs.length; i++) {
-      if (tokenDefs[i].reserved && tokenDefs[i].name.equals(word)) {
-        return tokenDefs[i].token;
-      }
+    int i = findReservedDefinition(word, reservedSeeds, reservedSlots, false);
+    if (i >= 0 && tokenDefs[i].name.equals(word)) {
+      return tokenDefs[i].token;
     }
     return -1;
   }
 
   int findReservedWordIgnoreCase(String word) {
-    for (int i = 0; i < tokenDefs.length; i++) {
-      if (tokenDefs[i].reserved && tokenDefs[i].name.equalsIgnoreCase(word)) {
-        return tokenDefs[i].token;
-      }
+    int i = findReservedDefinition(word, reservedSeedsIgnoreCase, reservedSlotsIgnoreCase, true);
+    if (i >= 0 && tokenDefs[i].name.equalsIgnoreCase(word)) {
+      return tokenDefs[i].token;
     }
     return -1;
   }
 
+
   private static final int REGEX_MATCHED = 0;
   private static final int REGEX_NONE = 1;
   private static final int REGEX_TOOMANY = 2;
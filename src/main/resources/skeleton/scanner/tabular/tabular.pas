@@ -19,7 +19,11 @@ CONST
 
 (* Global variables *)
 VAR
+{$IFDEF STACK_GROWS}
+    sStxStack   : Array of integer;                 (* SState stack. Internal use                     *)
+{$ELSE}
     sStxStack   : Array[0..STACK_DEPTH] of integer; (* SState stack. Internal use                     *)
+{$ENDIF}
     StxSym      : LongInt;                          (* Actual scanner symbol. Internal usage          *)
     StxState    : integer;                          (* Current automaton state. Internal usage        *)
     StxErrors   : Integer;                          (* Counts the number of errors.  User can read    *)
@@ -123,12 +127,29 @@ BEGIN
     ELSE StxErrorMessage := 'Syntax error';
 END;
 
+(*
+   Doubles the state and value stacks when STACK_GROWS is defined.
+   Returns FALSE if the stacks cannot grow
+*)
+FUNCTION StxGrowStacks: BOOLEAN;
+BEGIN
+{$IFDEF STACK_GROWS}
+    IF   Length(sStxStack) = 0
+    THEN SetLength(sStxStack, STACK_DEPTH+1)
+    ELSE SetLength(sStxStack, Length(sStxStack) * 2);
+    SetLength(StxStack, Length(sStxStack));
+    StxGrowStacks := TRUE;
+{$ELSE}
+    StxGrowStacks := FALSE;
+{$ENDIF}
+END;
+
 (*
    Does a shift operation.  Puts a new state on the top of the stack 
 *)
 FUNCTION StxShift(sym:LongInt; state:integer):BOOLEAN;
 BEGIN
-    IF   pStxStack >= STACK_DEPTH-1
+    IF   (pStxStack >= High(sStxStack)-1) AND NOT StxGrowStacks
     THEN StxShift := FALSE
     ELSE BEGIN
          pStxStack := pStxStack + 1;
@@ -151,7 +172,8 @@ BEGIN
 {$IFDEF DEBUG}
     writeln('Reduce on rule ', rule, ' with symbol ', sym);
 {$ENDIF}
-    IF   Not StxCode(rule)
+    IF   ((pStxStack >= High(sStxStack)-1) AND (StxGrammarTable[rule].reductions = 0) AND NOT StxGrowStacks)
+         OR Not StxCode(rule)
     THEN StxReduce := FALSE
     ELSE BEGIN
          pStxStack := pStxStack - StxGrammarTable[rule].reductions;
@@ -240,6 +262,10 @@ END; (* StxRecover *)
 *)
 PROCEDURE StxInit;
 BEGIN
+{$IFDEF STACK_GROWS}
+    IF   Length(sStxStack) = 0
+    THEN StxGrowStacks;
+{$ENDIF}
     pStxStack := 0;
     sStxStack[0] := 0;
     StxState := 0;
@@ -63,6 +63,8 @@ public class TestCExpandedScanner extends AbstractGenerationBase {
       "#define FINAL 34",
       "#define SYMBS 19",
       "#define NON_TERMINALS 2",
+      "#define RESERVED_WORDS 12",
+      "int StxFindReservedWordIgnoreCase\\(char \\*word\\);",
   };
   
   private static final String languagePackedParserChecks[] = {
@@ -70,6 +72,8 @@ public class TestCExpandedScanner extends AbstractGenerationBase {
     "C Skeleton",
     "unsigned long int StxLexer()",
     "int StxCode",
+    "int StxReservedSeeds\\[RESERVED_WORDS\\] = \\{",
+    "int StxFindReservedWord\\(char \\*word\\)",
     "End of parser"
   };
 
@@ -0,0 +1,83 @@
+package me.jaimegarza.syntax.test.c;
+
+import java.io.IOException;
+
+import me.jaimegarza.syntax.AnalysisException;
+import me.jaimegarza.syntax.OutputException;
+import me.jaimegarza.syntax.ParsingException;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.test.AbstractGenerationBase;
+
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+public class TestCRegexLexer extends AbstractGenerationBase {
+
+  static final String args[] = {
+    "--algorithm",
+    "l",
+    "--language",
+    "c",
+    "--noline",
+    "classpath:c-regex.sy",
+    "${file.language}",
+    "${file.include}",
+    "${file.grammar}",
+  };
+
+  private static final String languageChecks[] = {
+      "int StxLexerClassStarts\\[[0-9]+\\] = \\{",
+      "int StxLexerTransitions\\[[0-9]+\\] = \\{",
+      "int StxMatchRegex\\(int mode\\)",
+      "switch \\(StxMatchRegex\\(0\\)\\) \\{",
+      "case 4: /\\* TOK_LE \\*/",
+      "return 259;",
+      "void StxUngetChar\\(char c\\)",
+      "StxUngetChar\\(StxLexerRead\\[length\\]\\);",
+      "#define StxNextChar StxLexerNextChar",
+      "#undef StxNextChar",
+  };
+
+  static final String backtrackArgs[] = {
+    "--algorithm",
+    "l",
+    "--language",
+    "c",
+    "--noline",
+    "classpath:c-backtrack.sy",
+    "${file.language}",
+    "${file.include}",
+    "${file.grammar}",
+  };
+
+  @BeforeTest
+  public void setUp() throws IOException {
+    super.setUp(Language.C, "regexlexer");
+  }
+
+  @Override
+  @AfterTest
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void testCRegexLexer() throws ParsingException, AnalysisException, OutputException {
+    generateLanguageFile(args);
+    checkRegularExpressions(tmpLanguageFile, languageChecks);
+  }
+
+  @Test
+  public void testCBacktrack() throws IOException, ParsingException, AnalysisException, OutputException {
+    // compiled and run by externaltestsuite.pl, "3..-20" has to back up over the -
+    super.setUp(Language.C, "backtrack");
+    generateLanguageFile(backtrackArgs);
+    checkRegularExpressions(tmpLanguageFile, new String[] {
+        "case 1: /\\* TOK_TO \\*/",
+        "case 2: /\\* TOK_SPAN \\*/",
+        "StxChar = StxLexerRead\\[matchLength\\];",
+    });
+  }
+
+}
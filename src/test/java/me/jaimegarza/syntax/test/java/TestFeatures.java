@@ -1,7 +1,16 @@
 package me.jaimegarza.syntax.test.java;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.jci.compilers.CompilationResult;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import me.jaimegarza.syntax.AnalysisException;
@@ -115,6 +124,239 @@ public class TestFeatures extends AbstractGenerationBase {
     tearDown();
   }
   
+  @Test
+  public void testThreads() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "Threads");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "packed",
+        "--threads",
+        "1",
+        "classpath:errors.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    byte serialLanguage[] = FileUtils.readFileToByteArray(new File(tmpLanguageFile));
+    byte serialGrammar[] = FileUtils.readFileToByteArray(new File(tmpGrammarFile));
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "packed",
+        "--threads",
+        "4",
+        "classpath:errors.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    // the threaded final phase must produce a parser and report byte identical to the serial ones
+    Assert.assertEquals(FileUtils.readFileToByteArray(new File(tmpLanguageFile)), serialLanguage, "parser differs from -t 1");
+    Assert.assertEquals(FileUtils.readFileToByteArray(new File(tmpGrammarFile)), serialGrammar, "report differs from -t 1");
+    checkRegularExpressions(tmpGrammarFile, new String[] {
+        "State #  0 - Root",
+        "Actions \\(same as state [0-9]+\\)",
+    });
+    checkRegularExpressions(tmpLanguageFile, new String[] {
+        "Expecting an expression",
+        "arithmetic operator, logic operator or relational operator expected",
+        "arithmetic operator, logic operator, relational operator or right parenthesis expected",
+    });
+    tearDown();
+  }
+  
+  @Test
+  public void testLr() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "Lr");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "r",
+        "--language",
+        "java",
+        "--packing",
+        "tabular",
+        "classpath:lr1.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    checkRegularExpressions(tmpGrammarFile, new String[] {
+        "Algorithm:.*LR",
+        "State #  6 Goto from state 2 with symbol e",
+        "State #  9 Goto from state 3 with symbol e",
+        "REDUCE BY RULE 5 with \"c\"",
+        "REDUCE BY RULE 6 with \"c\"",
+        "States:.*14",
+    });
+    tearDown();
+  }
+  
+  @Test
+  public void testNullableFirst() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "Nullable");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "tabular",
+        "classpath:nullable.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    // P is empty through Q, so x follows B; a terminal ends First(A)
+    checkRegularExpressions(tmpGrammarFile, new String[] {
+        "4 B -> \\.\\s+\\{ x \\}",
+        "8 E -> \\.\\s+\\{ a \\}",
+        "REDUCE BY RULE 4 with \"x\"",
+        "REDUCE BY RULE 8 with \"a\"",
+        "3 B -> b \\.\\s+\\{ x \\}",
+        "REDUCE BY RULE 3 with \"x\"",
+        "7 E -> e \\.\\s+\\{ a \\}"
+    });
+    tearDown();
+  }
+  
+  @Test
+  public void testStatic() throws IOException, ParsingException, AnalysisException, OutputException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, NoSuchMethodException,
+      InvocationTargetException {
+    setUp(Language.java, "TestParser");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "packed",
+        "--static",
+        "classpath:java-test.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    checkRegularExpressions(tmpLanguageFile, new String[] {
+        "private static class TokenDef \\{",
+        "private static final TokenDef tokenDefs\\[\\] = \\{",
+        "private static class Parser \\{",
+        "final int position;",
+        "private static final Parser parsingTable\\[\\] = \\{",
+        "private static final Action actionTable\\[\\] = \\{",
+        "private static final Goto gotoTable\\[\\] = \\{",
+        "private static final Grammar grammarTable\\[\\]=\\{",
+        "private static final int nonTerminals\\[\\] = \\{",
+    });
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Errors during the compilation of the static java file");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    Class<?> clazz = classLoader.loadClass(FilenameUtils.getBaseName(tmpLanguageFile));
+    Method parse = clazz.getMethod("parse");
+    Method getTotal = clazz.getMethod("getTotal");
+    // two instances over the same static tables, each parsing twice
+    Object parsers[] = {clazz.newInstance(), clazz.newInstance()};
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < parsers.length; i++) {
+        Assert.assertEquals(parse.invoke(parsers[i]), 1, "parse failed on parser " + i + " pass " + pass);
+        Assert.assertEquals(getTotal.invoke(parsers[i]), -17, "total does not match on parser " + i + " pass " + pass);
+      }
+    }
+    tearDown();
+  }
+  
+  @Test
+  public void testCompact() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "TestParser");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "packed",
+        "--compact",
+        "classpath:java-test.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    checkRegularExpressions(tmpLanguageFile, new String[] {
+        "private static int\\[\\] decodeTable\\(String data\\[\\], int size\\) \\{",
+        "private static final String actionTableData\\[\\] = \\{",
+        "private static final Action actionTable\\[\\] = decodeActionTable\\(actionTableData, ACTIONS\\);",
+        "private static final Goto gotoTable\\[\\] = decodeGotoTable\\(gotoTableData, NUM_GOTOS\\);",
+        "private static final Parser parsingTable\\[\\] = decodeParsingTable\\(parsingTableData, FINAL\\);",
+        "private static final Grammar grammarTable\\[\\] = decodeGrammarTable\\(grammarTableData, 17\\);",
+    });
+    File source = new File(tmpLanguageFile);
+    CompilationResult result = compileJavaFile(source, source.getParentFile());
+    Assert.assertEquals(result.getErrors().length, 0, "Errors during the compilation of the compact java file");
+    tearDown();
+  }
+  
+  @Test
+  public void testGrowable() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "Growable");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "packed",
+        "--growable",
+        "classpath:java-test.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    checkRegularExpressions(tmpLanguageFile, new String[] {
+        "private static final int STACK_DEPTH = 64;",
+        "private static final boolean STACK_GROWS = true;",
+        "private boolean growStacks\\(\\) \\{",
+        "if\\(stackTop >= stateStack.length-1 && !growStacks\\(\\)\\) \\{",
+    });
+    tearDown();
+  }
+  
+  @Test
+  public void testRecycle() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "Recycle");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "packed",
+        "--recycle",
+        "classpath:java-test.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    checkRegularExpressions(tmpLanguageFile, new String[] {
+        "private static final boolean RECYCLE_VALUES = true;",
+        "lexicalValue = recycledStackElement\\(\\);",
+        "StackElement recycledStackElement\\(\\) \\{",
+        "recycleStackElements\\(stackTop - grammarTable\\[rule\\].reductions \\+ 1, stackTop\\);",
+    });
+    tearDown();
+  }
+  
   @Test
   public void testCodeLexer() throws IOException, ParsingException, AnalysisException, OutputException {
     setUp(Language.java, "CodeLexer");
@@ -144,4 +386,31 @@ public class TestFeatures extends AbstractGenerationBase {
     });
     tearDown();
   }
+
+  @Test
+  public void testEncoding() throws IOException, ParsingException, AnalysisException, OutputException {
+    setUp(Language.java, "Encoding");
+    generateLanguageFile(new String[] {
+        "--algorithm",
+        "l",
+        "--language",
+        "java",
+        "--packing",
+        "tabular",
+        "--encoding",
+        "UTF-8",
+        "classpath:encoding.sy",
+        "${file.language}",
+        "${file.include}",
+        "${file.grammar}"
+    });
+    String language = FileUtils.readFileToString(new File(tmpLanguageFile), "UTF-8");
+    Assert.assertTrue(language.contains("\"la letra \u00e1\""), "Token full name is not decoded");
+    Assert.assertTrue(language.contains("\"la letra \u00f1\""), "Token full name is not decoded");
+    Assert.assertTrue(language.contains("/* an\u00e1lisis de a */"), "Rule action is not decoded");
+    Assert.assertTrue(language.contains("// fin del an\u00e1lisis, a\u00f1o 2026"), "Final actions are not decoded");
+    String grammar = FileUtils.readFileToString(new File(tmpGrammarFile), "UTF-8");
+    Assert.assertTrue(grammar.contains("una expresi\u00f3n"), "Non terminal name is not decoded");
+    tearDown();
+  }
 }
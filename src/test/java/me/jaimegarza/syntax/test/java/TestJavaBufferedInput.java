@@ -0,0 +1,202 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.test.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+
+import me.jaimegarza.syntax.AnalysisException;
+import me.jaimegarza.syntax.OutputException;
+import me.jaimegarza.syntax.ParsingException;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.test.AbstractGenerationBase;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.jci.compilers.CompilationResult;
+import org.apache.commons.jci.problems.CompilationProblem;
+import org.testng.Assert;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+public class TestJavaBufferedInput extends AbstractGenerationBase {
+
+  static final String bufferedArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--buffered",
+      "classpath:java-buffered.sy",
+      "${file.language}"
+  };
+
+  private static final String languageBufferedChecks[] = {
+      "private static final int INPUT_BUFFER_SIZE = 8192;",
+      "public void setInput\\(String input\\) \\{",
+      "public void setInput\\(char input\\[\\], int length\\) \\{",
+      "public void setInput\\(java.nio.ByteBuffer input\\) \\{",
+      "public void setInput\\(java.io.Reader input\\) \\{",
+      "private char getNextChar\\(boolean initialize\\) \\{",
+      "public String getTokenText\\(\\) \\{",
+      "startToken\\(\\);",
+  };
+
+  @BeforeTest
+  public void setUp() throws IOException {
+    super.setUp(Language.java, "TestParser");
+  }
+
+  @Override
+  @AfterTest
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void test01Compile() throws ParsingException, AnalysisException, OutputException {
+    generateLanguageFile(bufferedArgs);
+    checkRegularExpressions(tmpLanguageFile, languageBufferedChecks);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+
+    if (result.getErrors().length > 0) {
+      for (CompilationProblem problemo : result.getErrors()) {
+        if (problemo.isError()) {
+          System.err.println(problemo.toString());
+        }
+      }
+      Assert.fail("Errors during the compilation of the output java file");
+    }
+  }
+
+  @Test
+  public void test02Runtime() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(bufferedArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    Method setReader = parser.getClass().getMethod("setInput", Reader.class);
+    Method setBytes = parser.getClass().getMethod("setInput", ByteBuffer.class);
+    Method setChars = parser.getClass().getMethod("setInput", char[].class, int.class);
+    Method getNumbers = parser.getClass().getMethod("getNumbers");
+
+    // the input given by the constructor, as a String
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the sequence");
+    Assert.assertEquals(getNumbers.invoke(parser), "1 3 4 5 20 ", "token text does not match on the sequence");
+
+    // a fraction marked on one block of the reader and read on the next
+    StringBuilder padding = new StringBuilder();
+    while (padding.length() < 8192 - "(1 + 3) *".length() - 2) {
+      padding.append(' ');
+    }
+    String input = padding + "(1 + 3) *4.0 / 5 + -20";
+    setReader.invoke(parser, new StringReader(input));
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the reader");
+    Assert.assertEquals(getNumbers.invoke(parser), "1 3 4.0 5 20 ", "token text does not match on the reader");
+
+    setBytes.invoke(parser, ByteBuffer.wrap(input.getBytes()));
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the bytes");
+    Assert.assertEquals(getNumbers.invoke(parser), "1 3 4.0 5 20 ", "token text does not match on the bytes");
+
+    char chars[] = (input + "trailing garbage").toCharArray();
+    setChars.invoke(parser, chars, input.length());
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the characters");
+    Assert.assertEquals(getNumbers.invoke(parser), "1 3 4.0 5 20 ", "token text does not match on the characters");
+  }
+
+  @Test
+  public void test03CallerArray() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(bufferedArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    Method setReader = parser.getClass().getMethod("setInput", Reader.class);
+    Method setChars = parser.getClass().getMethod("setInput", char[].class, int.class);
+
+    // the reader that follows an array must not read into the array of the caller
+    String input = "(1 + 3) *4 / 5 + -20";
+    char chars[] = input.toCharArray();
+    setChars.invoke(parser, chars, chars.length);
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the characters");
+    setReader.invoke(parser, new StringReader("2 * 3 + 1"));
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), 7, "total does not match on the reader");
+    Assert.assertEquals(new String(chars), input, "the characters of the caller were overwritten");
+
+    // nor grow from an empty array of the caller
+    setChars.invoke(parser, new char[0], 0);
+    parse.invoke(parser);
+    setReader.invoke(parser, new StringReader(input));
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the reader after an empty array");
+  }
+
+}
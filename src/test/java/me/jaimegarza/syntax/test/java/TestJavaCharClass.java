@@ -0,0 +1,147 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.test.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import me.jaimegarza.syntax.AnalysisException;
+import me.jaimegarza.syntax.OutputException;
+import me.jaimegarza.syntax.ParsingException;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.test.AbstractGenerationBase;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.jci.compilers.CompilationResult;
+import org.apache.commons.jci.problems.CompilationProblem;
+import org.testng.Assert;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+public class TestJavaCharClass extends AbstractGenerationBase {
+
+  static final String charClassArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--buffered",
+      "classpath:java-charclass.sy",
+      "${file.language}"
+  };
+
+  private static final String languageCharClassChecks[] = {
+      "private int charClassBlocks\\[\\] = \\{",
+      "private char charClassMasks\\[\\] = joinCharClassMasks\\(new String\\[\\] \\{",
+      "private static char\\[\\] joinCharClassMasks\\(String blocks\\[\\]\\) \\{",
+      "while \\(\\(\\(charClassMasks\\[charClassBlocks\\[currentChar >> 8\\] \\| \\(currentChar & 0xff\\)\\] & 1\\) != 0\\)\\)",
+      "if \\(\\(\\(charClassMasks\\[charClassBlocks\\[currentChar >> 8\\] \\| \\(currentChar & 0xff\\)\\] & 2\\) != 0\\)\\)",
+      "if \\(currentChar != '\\\\0' && \\(\\(charClassMasks\\[charClassBlocks\\[currentChar >> 8\\] \\| \\(currentChar & 0xff\\)\\] & 16\\) != 0\\)\\)",
+  };
+
+  @BeforeTest
+  public void setUp() throws IOException {
+    super.setUp(Language.java, "TestParser");
+  }
+
+  @Override
+  @AfterTest
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void test01Compile() throws ParsingException, AnalysisException, OutputException {
+    generateLanguageFile(charClassArgs);
+    checkRegularExpressions(tmpLanguageFile, languageCharClassChecks);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+
+    if (result.getErrors().length > 0) {
+      for (CompilationProblem problemo : result.getErrors()) {
+        if (problemo.isError()) {
+          System.err.println(problemo.toString());
+        }
+      }
+      Assert.fail("Errors during the compilation of the output java file");
+    }
+  }
+
+  @Test
+  public void test02Runtime() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(charClassArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    Method setString = parser.getClass().getMethod("setInput", String.class);
+    Method getWords = parser.getClass().getMethod("getWords");
+    Method getNumbers = parser.getClass().getMethod("getNumbers");
+    Method getMarks = parser.getClass().getMethod("getMarks");
+    Method clear = parser.getClass().getMethod("clear");
+
+    // ascii only, the first block of masks
+    Assert.assertEquals(parse.invoke(parser), 1, "parse failed on ascii");
+    Assert.assertEquals(getTotal.invoke(parser), 5, "token count does not match on ascii");
+    Assert.assertEquals(getWords.invoke(parser), "abc_1 x ", "words do not match on ascii");
+    Assert.assertEquals(getNumbers.invoke(parser), "42 ", "numbers do not match on ascii");
+    Assert.assertEquals(getMarks.invoke(parser), ",+", "marks do not match on ascii");
+
+    // letters of the latin-1, greek and cyrillic blocks, and the marks among them
+    // that the negated class has to keep: the multiplication sign and the em dash
+    clear.invoke(parser);
+    setString.invoke(parser, "h\u00e9llo, \u0436\u0443\u043a\u00d7\u03b4 42 \u2014 x9!");
+    Assert.assertEquals(parse.invoke(parser), 1, "parse failed on unicode");
+    Assert.assertEquals(getTotal.invoke(parser), 9, "token count does not match on unicode");
+    Assert.assertEquals(getWords.invoke(parser), "h\u00e9llo \u0436\u0443\u043a \u03b4 x9 ", "words do not match on unicode");
+    Assert.assertEquals(getNumbers.invoke(parser), "42 ", "numbers do not match on unicode");
+    Assert.assertEquals(getMarks.invoke(parser), ",\u00d7\u2014!", "marks do not match on unicode");
+  }
+
+}
@@ -71,6 +71,8 @@ public class TestJavaExpandedParser extends AbstractGenerationBase {
       "int FINAL=34",
       "int SYMBS=19",
       "int NON_TERMINALS=2",
+      "int TOKEN_HASH_SIZE=64",
+      "int RESERVED_WORDS=12",
       "Begin of Skeleton",
       "Java Skeleton Parser for matrix tables"
   };
@@ -71,6 +71,8 @@ public class TestJavaExpandedScanner extends AbstractGenerationBase {
       "int FINAL=34",
       "int SYMBS=19",
       "int NON_TERMINALS=2",
+      "int TOKEN_HASH_SIZE=64",
+      "int RESERVED_WORDS=12",
       "Begin of Skeleton",
       "Java Skeleton"
   };
@@ -170,6 +172,35 @@ public class TestJavaExpandedScanner extends AbstractGenerationBase {
     Integer i = (Integer) o;
     Assert.assertEquals((int) i, -17, "total does not match");
   }
+
+  @Test
+  public void test04ReservedWords() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(packedArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    Class<?> clazz = classLoader.loadClass(FilenameUtils.getBaseName(tmpLanguageFile));
+    Object parser = clazz.newInstance();
+    Method findReservedWord = clazz.getDeclaredMethod("findReservedWord", String.class);
+    Method findReservedWordIgnoreCase = clazz.getDeclaredMethod("findReservedWordIgnoreCase", String.class);
+    findReservedWord.setAccessible(true);
+    findReservedWordIgnoreCase.setAccessible(true);
+    Assert.assertEquals(findReservedWord.invoke(parser, "TOK_AND"), 256, "TOK_AND is not found");
+    Assert.assertEquals(findReservedWord.invoke(parser, "TOK_NUMBER"), TOK_NUMBER, "TOK_NUMBER is not found");
+    Assert.assertEquals(findReservedWord.invoke(parser, "tok_and"), -1, "tok_and is found");
+    Assert.assertEquals(findReservedWord.invoke(parser, "TOK_ANDS"), -1, "TOK_ANDS is found");
+    Assert.assertEquals(findReservedWordIgnoreCase.invoke(parser, "tok_and"), 256, "tok_and is not found");
+    Assert.assertEquals(findReservedWordIgnoreCase.invoke(parser, "Tok_Number"), TOK_NUMBER, "Tok_Number is not found");
+    Assert.assertEquals(findReservedWordIgnoreCase.invoke(parser, "tok"), -1, "tok is found");
+  }
   
   private static final int TOK_NUMBER = 32769;
   
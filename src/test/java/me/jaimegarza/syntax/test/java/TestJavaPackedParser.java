@@ -30,6 +30,7 @@ package me.jaimegarza.syntax.test.java;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
@@ -62,6 +63,37 @@ public class TestJavaPackedParser extends AbstractGenerationBase {
       "${file.language}"
   };
 
+  static final String growableArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--growable",
+      "classpath:java-test.sy",
+      "${file.language}"
+  };
+
+  static final String recycleArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--recycle",
+      "classpath:java-test.sy",
+      "${file.language}"
+  };
+
+  static final String concurrentArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--static",
+      "--growable",
+      "classpath:java-test.sy",
+      "${file.language}"
+  };
+
   private static final String languagePackedChecks[] = {
       "int TOKENS=18",
       "int FINAL=34",
@@ -154,4 +186,159 @@ public class TestJavaPackedParser extends AbstractGenerationBase {
     Assert.assertEquals((int) i, -17, "total does not match");
   }
 
+  @Test
+  public void test04Reset() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(packedArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Method reset = parser.getClass().getMethod("reset");
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    for (int pass = 0; pass < 2; pass++) {
+      reset.invoke(parser);
+      parse.invoke(parser);
+      Object o = getTotal.invoke(parser);
+      Assert.assertTrue(o instanceof Integer);
+      Integer i = (Integer) o;
+      Assert.assertEquals((int) i, -17, "total does not match on pass " + pass);
+    }
+  }
+
+  @Test
+  public void test05Growable() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, NoSuchFieldException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(growableArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    // nest deeper than the initial STACK_DEPTH of 64 so that the stacks grow
+    StringBuilder expression = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      expression.append('(');
+    }
+    expression.append("2 + 3");
+    for (int i = 0; i < 200; i++) {
+      expression.append(')');
+    }
+    Field field = clazz.getDeclaredField("expression");
+    field.setAccessible(true);
+    field.set(parser, expression.toString());
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    for (int pass = 0; pass < 2; pass++) {
+      Object o = parse.invoke(parser);
+      Assert.assertEquals(o, 1, "parse failed on pass " + pass);
+      o = getTotal.invoke(parser);
+      Assert.assertEquals(o, 5, "total does not match on pass " + pass);
+    }
+  }
+
+  @Test
+  public void test07Recycle() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, NoSuchFieldException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(recycleArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Field field = clazz.getDeclaredField("expression");
+    field.setAccessible(true);
+    Method reset = parser.getClass().getMethod("reset");
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    // the values popped by one parse hold the tokens of the next
+    String expressions[] = {"(1 + 3) *4 / 5 + -20", "2 * (3 + 4) - 1", "((7))", "(1 + 3) *4 / 5 + -20"};
+    int totals[] = {-17, 13, 7, -17};
+    for (int pass = 0; pass < expressions.length; pass++) {
+      field.set(parser, expressions[pass]);
+      reset.invoke(parser);
+      Object o = parse.invoke(parser);
+      Assert.assertEquals(o, 1, "parse failed on pass " + pass);
+      o = getTotal.invoke(parser);
+      Assert.assertEquals(o, totals[pass], "total does not match on pass " + pass);
+    }
+  }
+
+  @Test
+  public void test06Concurrent() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, InterruptedException {
+    generateLanguageFile(concurrentArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    final Method reset = clazz.getMethod("reset");
+    final Method parse = clazz.getMethod("parse");
+    final Method getTotal = clazz.getMethod("getTotal");
+    // the static tables are shared, each thread keeps its own instance
+    final int passes = 500;
+    final int failures[] = new int[8];
+    Thread threads[] = new Thread[failures.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      final Object parser = clazz.newInstance();
+      threads[t] = new Thread(new Runnable() {
+        public void run() {
+          for (int pass = 0; pass < passes; pass++) {
+            try {
+              reset.invoke(parser);
+              if (!Integer.valueOf(1).equals(parse.invoke(parser)) ||
+                  !Integer.valueOf(-17).equals(getTotal.invoke(parser))) {
+                failures[thread]++;
+              }
+            } catch (Exception e) {
+              failures[thread]++;
+            }
+          }
+        }
+      });
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      Assert.assertEquals(failures[t], 0, "parses failed on thread " + t);
+    }
+  }
+
 }
@@ -0,0 +1,201 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.test.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import me.jaimegarza.syntax.AnalysisException;
+import me.jaimegarza.syntax.OutputException;
+import me.jaimegarza.syntax.ParsingException;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.test.AbstractGenerationBase;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.jci.compilers.CompilationResult;
+import org.apache.commons.jci.problems.CompilationProblem;
+import org.testng.Assert;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+public class TestJavaRegexLexer extends AbstractGenerationBase {
+
+  static final String regexArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--buffered",
+      "classpath:java-regex.sy",
+      "${file.language}"
+  };
+
+  static final String backtrackArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "--buffered",
+      "classpath:java-backtrack.sy",
+      "${file.language}"
+  };
+
+  static final String unbufferedBacktrackArgs[] = {
+      "--algorithm",
+      "l",
+      "--language",
+      "java",
+      "classpath:java-backtrack.sy",
+      "${file.language}"
+  };
+
+  private static final String languageRegexChecks[] = {
+      "private static final int LEXER_CLASSES = [0-9]+;",
+      "private int lexerClassStarts\\[\\] = \\{",
+      "private int lexerTransitions\\[\\] = \\{",
+      "private int matchRegex\\(int mode\\) \\{",
+      "switch \\(matchRegex\\(0\\)\\) \\{",
+      "case 9: // TOK_EQ",
+      "lexicalValue.number = \\(int\\) Double.parseDouble\\(getTokenText\\(\\)\\);",
+      "return TOK_NUMBER;",
+  };
+
+  @BeforeTest
+  public void setUp() throws IOException {
+    super.setUp(Language.java, "TestParser");
+  }
+
+  @Override
+  @AfterTest
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void test01Compile() throws ParsingException, AnalysisException, OutputException {
+    generateLanguageFile(regexArgs);
+    checkRegularExpressions(tmpLanguageFile, languageRegexChecks);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+
+    if (result.getErrors().length > 0) {
+      for (CompilationProblem problemo : result.getErrors()) {
+        if (problemo.isError()) {
+          System.err.println(problemo.toString());
+        }
+      }
+      Assert.fail("Errors during the compilation of the output java file");
+    }
+  }
+
+  @Test
+  public void test02Runtime() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(regexArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    Method setString = parser.getClass().getMethod("setInput", String.class);
+
+    // the input given by the constructor
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the sequence");
+
+    // a fraction, longest match over a shorter accepted prefix
+    setString.invoke(parser, "(1 + 3) *4.0 / 5 + -20");
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the fraction");
+
+    // operators that are prefixes of other operators
+    setString.invoke(parser, "(1 <= 2) + (3 <> 3) + (2 == 2) + (3 >= 4) + (2 > 1)");
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), 3, "total does not match on the relational operators");
+  }
+
+  @Test
+  public void test03Backtrack() throws ParsingException, AnalysisException, OutputException, MalformedURLException,
+      ClassNotFoundException, InstantiationException, IllegalAccessException, SecurityException,
+      NoSuchMethodException, IllegalArgumentException, InvocationTargetException {
+    generateLanguageFile(backtrackArgs);
+
+    File source = new File(tmpLanguageFile);
+    File sourceDir = source.getParentFile();
+    CompilationResult result = compileJavaFile(source, sourceDir);
+    Assert.assertEquals(result.getErrors().length, 0, "Syntax errors found trying to execute");
+
+    URL urls[] = new URL[1];
+    urls[0] = sourceDir.toURI().toURL();
+    URLClassLoader classLoader = URLClassLoader.newInstance(urls, this.getClass().getClassLoader());
+    String className = FilenameUtils.getBaseName(tmpLanguageFile);
+    Class<?> clazz = classLoader.loadClass(className);
+    Object parser = clazz.newInstance();
+    Method parse = parser.getClass().getMethod("parse");
+    Method getTotal = parser.getClass().getMethod("getTotal");
+    Method setString = parser.getClass().getMethod("setInput", String.class);
+
+    // .. followed by a - that does not go on to ..-.. is read again as a minus
+    parse.invoke(parser);
+    Assert.assertEquals(getTotal.invoke(parser), -17, "total does not match on the sequence");
+
+    setString.invoke(parser, "1 .. 2 ..-  3");
+    Assert.assertEquals(parse.invoke(parser), 1, "parse failed on the blanks after the minus");
+    Assert.assertEquals(getTotal.invoke(parser), 0, "total does not match on the blanks after the minus");
+
+    setString.invoke(parser, "2..-..3");
+    Assert.assertEquals(parse.invoke(parser), 1, "parse failed on the longer operator");
+    Assert.assertEquals(getTotal.invoke(parser), 6, "total does not match on the longer operator");
+  }
+
+  @Test(expectedExceptions = ParsingException.class)
+  public void test04BacktrackNeedsBuffered() throws ParsingException, AnalysisException, OutputException {
+    // without --buffered the lexer cannot read the - again
+    generateLanguageFile(unbufferedBacktrackArgs);
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ ===============================================================================
+ Copyright (c) 1985, 2012, Jaime Garza
+ All rights reserved.
+ 
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+     * Redistributions of source code must retain the above copyright
+       notice, this list of conditions and the following disclaimer.
+     * Redistributions in binary form must reproduce the above copyright
+       notice, this list of conditions and the following disclaimer in the
+       documentation and/or other materials provided with the distribution.
+     * Neither the name of Jaime Garza nor the
+       names of its contributors may be used to endorse or promote products
+       derived from this software without specific prior written permission.
+ 
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ===============================================================================
+*/
+package me.jaimegarza.syntax.test.pascal;
+
+import java.io.IOException;
+
+import me.jaimegarza.syntax.AnalysisException;
+import me.jaimegarza.syntax.OutputException;
+import me.jaimegarza.syntax.ParsingException;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.test.AbstractGenerationBase;
+
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+public class TestPascalCombParser extends AbstractGenerationBase {
+
+  static final String combParserArguments[] = {
+      //"-v",
+      "--algorithm",
+      "l",
+      "--language",
+      "pascal",
+      "--packing",
+      "comb",
+      "classpath:pascal-test.sy",
+      "${file.language}",
+      "${file.include}",
+      "${file.grammar}",
+  };
+
+  private static final String languageCombIncludeChecks[] = {
+    "\\$DEFINE PARSER_MODE",
+    "\\$DEFINE COMB_TABLES",
+    "TOKENS = 18",
+    "FINAL = 34",
+    "SYMBS = 19",
+  };
+  
+  private static final String languageCombParserChecks[] = {
+    "Begin of Skeleton",
+    "Pascal Skeleton Parser FOR comb tables",
+    "StxLexer():longint",
+    "StxCode.*boolean",
+    "End of parser"
+  };
+
+  private static final String grammarCombParserChecks[] = {
+      "Algorithm:.*LALR",
+      "Language:.*pascal",
+      "Packed\\?:.*.*true",
+      "Tokens:.*18",
+      "Non Terminals:.*2",
+      "Types:.*1",
+      "Rules:.*17",
+      "Errors:.*8",
+      "Comb Size:.*65",
+      "Recoveries:.*0",
+      "States:.*34",
+  };
+
+  @BeforeTest
+  public void setUp() throws IOException {
+    super.setUp(Language.pascal, "combparser");
+  }
+
+
+  @Override
+  @AfterTest
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void test01GenerateCombParser() throws ParsingException, AnalysisException, OutputException {
+    generateLanguageFile(combParserArguments);
+
+    checkRegularExpressions(tmpIncludeFile, languageCombIncludeChecks);
+    checkRegularExpressions(tmpLanguageFile, languageCombParserChecks);
+    checkRegularExpressions(tmpGrammarFile, grammarCombParserChecks);
+  }
+
+}
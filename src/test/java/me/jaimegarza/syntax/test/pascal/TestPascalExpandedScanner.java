@@ -63,6 +63,8 @@ public class TestPascalExpandedScanner extends AbstractGenerationBase {
     "TOKENS = 18",
     "FINAL = 34",
     "SYMBS = 19",
+    "RESERVED_WORDS = 12",
+    "function StxFindReservedWordIgnoreCase\\(word:string\\):longint; forward;",
   };
 
   private static final String languageTabularParserChecks[] = {
@@ -70,6 +72,8 @@ public class TestPascalExpandedScanner extends AbstractGenerationBase {
     "Pascal Skeleton",
     "StxLexer():longint",
     "StxCode.*boolean",
+    "StxReservedSeeds : array \\[0..11\\] of LongInt = \\(",
+    "function StxFindReservedWord\\(word:string\\):longint;",
     "End of parser"
   };
 
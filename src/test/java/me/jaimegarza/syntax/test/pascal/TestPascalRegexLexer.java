@@ -0,0 +1,58 @@
+package me.jaimegarza.syntax.test.pascal;
+
+import java.io.IOException;
+
+import me.jaimegarza.syntax.AnalysisException;
+import me.jaimegarza.syntax.OutputException;
+import me.jaimegarza.syntax.ParsingException;
+import me.jaimegarza.syntax.language.Language;
+import me.jaimegarza.syntax.test.AbstractGenerationBase;
+
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+public class TestPascalRegexLexer extends AbstractGenerationBase {
+
+  static final String args[] = {
+    "--algorithm",
+    "l",
+    "--language",
+    "pascal",
+    "--noline",
+    "classpath:pascal-regex.sy",
+    "${file.language}",
+    "${file.include}",
+    "${file.grammar}",
+  };
+
+  private static final String languageChecks[] = {
+      "LEXER_CLASSES = [0-9]+;",
+      "StxLexerTransitions : array \\[0..[0-9]+\\] of LongInt = \\(",
+      "function StxMatchRegex\\(mode:integer\\):integer;",
+      "case StxMatchRegex\\(0\\) of",
+      "4: begin \\{ TOK_LE \\}",
+      "StxLexer := 259; exit;",
+      "procedure StxUngetChar\\(c:char\\);",
+      "StxUngetChar\\(StxLexerRead\\[readCount\\]\\);",
+      "StxNextChar := StxLexerNextChar;",
+  };
+
+  @BeforeTest
+  public void setUp() throws IOException {
+    super.setUp(Language.pascal, "regexlexer");
+  }
+
+  @Override
+  @AfterTest
+  public void tearDown() {
+    super.tearDown();
+  }
+
+  @Test
+  public void testPascalRegexLexer() throws ParsingException, AnalysisException, OutputException {
+    generateLanguageFile(args);
+    checkRegularExpressions(tmpLanguageFile, languageChecks);
+  }
+
+}
@@ -4,10 +4,17 @@ testOneFile("expandedparser.c", "c", "gcc");
 testOneFile("packedparser.c", "c", "gcc");
 testOneFile("expandedscanner.c", "c", "gcc");
 testOneFile("packedscanner.c", "c", "gcc");
+testOneFile("combparser.c", "c", "gcc");
+testOneFile("combscanner.c", "c", "gcc");
+testOneFile("backtrack.c", "c", "gcc");
+testOneFile("regexlexer.c", "c", "gcc");
 testOneFile("expandedparser.pas", "pascal", "fpc");
 testOneFile("packedparser.pas", "pascal", "fpc");
 testOneFile("expandedscanner.pas", "pascal", "fpc");
 testOneFile("packedscanner.pas", "pascal", "fpc");
+testOneFile("combparser.pas", "pascal", "fpc");
+testOneFile("combscanner.pas", "pascal", "fpc");
+testOneFile("regexlexer.pas", "pascal", "fpc");
 
 sub execute # (cmd)
 {